@@ -3,4 +3,9 @@ package catan;
 public abstract class Action {
 	public abstract boolean execute(Board b, Agent a);
 	public abstract String describe();
+
+	// whether the action may be played now; the simulator checks each action of a plan just before executing it
+	public boolean isLegal(Board b, Agent a, MoveValidator rules) {
+		return true;
+	}
 }
@@ -0,0 +1,36 @@
+package catan;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One batch of actions an agent planned, executed together: the hand-limit
+ * builds or one turn plan.
+ */
+@Name("catan.Action")
+@Label("Actions Executed")
+@Category("Catan")
+@Description("A plan of actions applied to the board, up to the first illegal one")
+@Enabled(false)
+@StackTrace(false)
+final class ActionEvent extends Event {
+	@Label("Agent")
+	int agentId;
+
+	@Label("Round")
+	int round;
+
+	@Label("First Action Type")
+	Class<?> actionType;
+
+	@Label("Actions Planned")
+	int actions;
+
+	@Label("Actions Succeeded")
+	int succeeded;
+}
@@ -1,28 +1,230 @@
 package catan;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 public abstract class Agent {
+	// a turn that starts with more cards than this begins with builds until the hand is back within it
+	public static final int HAND_LIMIT = 7;
+
 	private int id;
+	// the game state this agent reads and writes, and its seat in it; a private one-seat state until seated
+	private GameState state;
+	private int seat;
 	private ResourceHand hand;
-	private int victoryPoints;
 
 	public abstract Action chooseAction(Board b);
 
+	/**
+	 * chooseAction under a decision budget; deadline is a System.nanoTime()
+	 * value. A decision returned after the deadline is thrown away and
+	 * fallbackAction is played instead, so anytime agents should override
+	 * this and return their best move so far shortly before the deadline.
+	 * By default the deadline is ignored.
+	 */
+	public Action chooseAction(Board b, long deadline) {
+		return chooseAction(b);
+	}
+
+	/**
+	 * The actions for the turn, in order: any trades, then at most one build
+	 * or development card play, which ends the turn. The simulator checks
+	 * each action just before executing it and drops the rest of the plan at
+	 * the first illegal one; a plan of trades alone is followed by another
+	 * call. By default the plan is the single action chooseAction returns.
+	 */
+	public List<Action> planTurn(Board b) {
+		return asPlan(chooseAction(b));
+	}
+
+	// planTurn under a decision budget, as chooseAction(b, deadline) is to chooseAction(b)
+	public List<Action> planTurn(Board b, long deadline) {
+		return asPlan(chooseAction(b, deadline));
+	}
+
+	static List<Action> asPlan(Action action) {
+		return (action == null) ? Collections.emptyList() : Collections.singletonList(action);
+	}
+
+	// played in place of a decision that missed its deadline; passing by default
+	public Action fallbackAction(Board b) {
+		return null;
+	}
+
+	/**
+	 * The builds, in order, to make at the start of a turn that begins over
+	 * the hand limit, before the turn's usual decision; see BuildPlanner. By
+	 * default cities first, then settlements, development cards and roads.
+	 */
+	public List<Action> planHandLimitBuilds(Board b) {
+		return BuildPlanner.plan(b, this, BuildPlanner.DEFAULT_PREFERENCE);
+	}
+
+	// called once per card when a 7 forces this agent to discard half its hand
+	public abstract ResourceType chooseDiscard(Board b);
+
+	public abstract Hex chooseRobberHex(Board b);
+
+	public abstract Agent chooseVictim(Board b, List<Agent> candidates);
+
 	public int getId() {
 		return id;
 	}
 
+	int getSeat() {
+		return seat;
+	}
+
+	// the agent's random stream, so snapshots can save and restore it; null if it has none
+	Random getRandom() {
+		return null;
+	}
+
+	// moves this agent into seat of a new game; only valid before the game starts
+	void seat(GameState state, int seat) {
+		this.state = state;
+		this.seat = seat;
+		this.hand = new ResourceHand(state, seat);
+	}
+
 	public int getVictoryPoints() {
-		return victoryPoints;
+		return state.victoryPoints[seat];
 	}
 
 	public void addVictoryPoints(int delta) {
-		victoryPoints += delta;
+		state.victoryPoints[seat] += delta;
+	}
+
+	public ResourceHand getHand() {
+		return hand;
+	}
+
+	public int getSettlementCount() {
+		return state.settlements[seat];
+	}
+
+	public int getCityCount() {
+		return state.cities[seat];
+	}
+
+	public int getRoadCount() {
+		return state.roads[seat];
+	}
+
+	// number of legal moves the agent had to choose from at its last decision
+	public int getLegalMoveCount() {
+		return state.legalMoves[seat];
+	}
+
+	protected void setLegalMoveCount(int count) {
+		state.legalMoves[seat] = count;
+	}
+
+	void recordSettlement() {
+		state.settlements[seat]++;
+	}
+
+	void recordCity() {
+		state.settlements[seat]--;
+		state.cities[seat]++;
+	}
+
+	void recordRoad() {
+		state.roads[seat]++;
 	}
 
 	public void addResource(ResourceType r, int amount) {
 		hand.add(r, amount);
 	}
 
+	// removes one card chosen uniformly from the hand, or returns null if the hand is empty
+	public ResourceType removeRandomResource(Random rng) {
+		int total = hand.getTotalCards();
+		if (total == 0) return null;
+		int pick = rng.nextInt(total);
+		for (ResourceType r : ResourceType.values()) {
+			pick -= hand.get(r);
+			if (pick < 0) {
+				hand.remove(r, 1);
+				return r;
+			}
+		}
+		return null;
+	}
+
+	public int getTradeRate(ResourceType r) {
+		return state.tradeRates[seat][r.ordinal()];
+	}
+
+	int[] tradeRates() {
+		return state.tradeRates[seat];
+	}
+
+	void addHarbor(HarborType harbor) {
+		int[] tradeRates = state.tradeRates[seat];
+		for (ResourceType r : ResourceType.values()) {
+			if (harbor.getResource() == null || harbor.getResource() == r) {
+				tradeRates[r.ordinal()] = Math.min(tradeRates[r.ordinal()], harbor.getRate());
+			}
+		}
+	}
+
+	public boolean canTrade(ResourceType give, ResourceType get) {
+		return give != get && hand.get(give) >= getTradeRate(give);
+	}
+
+	public boolean trade(ResourceType give, ResourceType get) {
+		if (!canTrade(give, get)) return false;
+		hand.remove(give, getTradeRate(give));
+		hand.add(get, 1);
+		return true;
+	}
+
+	// called by the simulator at the start of each of this agent's turns
+	void beginTurn() {
+		int[] devCards = state.devCards[seat];
+		int[] newDevCards = state.newDevCards[seat];
+		for (int i = 0; i < devCards.length; i++) {
+			devCards[i] += newDevCards[i];
+			newDevCards[i] = 0;
+		}
+		state.playedDevCard[seat] = false;
+		state.setTurn(seat);
+	}
+
+	void addDevelopmentCard(DevelopmentCardType card) {
+		if (card == DevelopmentCardType.VICTORY_POINT) {
+			// victory point cards count as soon as they are drawn
+			state.devCards[seat][card.ordinal()]++;
+			addVictoryPoints(1);
+		} else {
+			state.newDevCards[seat][card.ordinal()]++;
+		}
+	}
+
+	public int getDevelopmentCardCount(DevelopmentCardType card) {
+		return state.devCards[seat][card.ordinal()] + state.newDevCards[seat][card.ordinal()];
+	}
+
+	// at most one development card per turn, and not one bought this turn
+	public boolean canPlayDevelopmentCard(DevelopmentCardType card) {
+		return !state.playedDevCard[seat] && card != DevelopmentCardType.VICTORY_POINT
+				&& state.devCards[seat][card.ordinal()] > 0;
+	}
+
+	boolean playDevelopmentCard(DevelopmentCardType card) {
+		if (!canPlayDevelopmentCard(card)) return false;
+		state.devCards[seat][card.ordinal()]--;
+		state.playedDevCard[seat] = true;
+		if (card == DevelopmentCardType.KNIGHT) state.knightsPlayed[seat]++;
+		return true;
+	}
+
+	public int getKnightsPlayed() {
+		return state.knightsPlayed[seat];
+	}
+
 	public boolean canAfford(Cost c) {
 		for (java.util.Map.Entry<ResourceType, Integer> entry : c.getRequired().entrySet()) {
 			if (hand.get(entry.getKey()) < entry.getValue()) return false;
@@ -37,12 +239,11 @@ public abstract class Agent {
 	}
 
 	public boolean checkHandLimit() {
-		return hand.getTotalCards() > 7;
+		return hand.getTotalCards() > HAND_LIMIT;
 	}
 
 	protected void initAgent(int id) {
 		this.id = id;
-		this.hand = new ResourceHand();
-		this.victoryPoints = 0;
+		seat(new GameState(1), 0);
 	}
 }
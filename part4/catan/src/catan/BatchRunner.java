@@ -0,0 +1,154 @@
+package catan;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays a long batch of games with one config and checkpoints its progress,
+ * so a killed run resumes where it stopped and ends with the same totals as
+ * an uninterrupted one.
+ *
+ * Game seeds are drawn in order from one GameRandom stream, and games are
+ * played in chunks; after each chunk the checkpoint records how many games
+ * are done, the merged stats and the seed stream's state. The checkpoint is
+ * written to a temporary file and atomically moved over the previous one, so
+ * there is always a complete checkpoint on disk. It also holds a fingerprint
+ * of the config and game count and is ignored if they change.
+ *
+ * Usage: java -cp bin catan.BatchRunner config.txt games checkpoint.bin [threads]
+ */
+public class BatchRunner {
+	private static final int MAGIC = 0x43415442; // "CATB"
+	private static final int VERSION = 1;
+
+	private final String configText;
+	private final int games;
+	private final Path checkpoint;
+	private final int threads;
+	private final long fingerprint;
+
+	private int completed;
+	private GameRandom seeds;
+	private GameStats stats;
+
+	public BatchRunner(String configText, int games, Path checkpoint, int threads) {
+		this.configText = configText;
+		this.games = games;
+		this.checkpoint = checkpoint;
+		this.threads = threads;
+		this.fingerprint = fingerprint(configText, games);
+	}
+
+	public GameStats run(PrintStream log) throws IOException, InterruptedException {
+		if (readCheckpoint()) {
+			log.println("Resuming after " + completed + " of " + games + " games");
+		} else {
+			GameConfig config = GameConfig.parse(configText);
+			completed = 0;
+			seeds = new GameRandom(config.isSeeded() ? config.getSeed() : new SecureRandom().nextLong());
+			stats = new GameStats(config.getPlayers());
+		}
+		if (GameConfig.parse(configText).getDecisionBudgetNanos() > 0) {
+			log.println("warning: decision_budget_ms is set; games depend on timing, so the seed does not reproduce this batch");
+		}
+		int chunk = Math.max(64, threads * 8);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			while (completed < games) {
+				int n = Math.min(chunk, games - completed);
+				List<Future<int[]>> results = new ArrayList<>();
+				for (int i = 0; i < n; i++) {
+					GameConfig config = GameConfig.parse(configText);
+					config.set("seed", Long.toString(seeds.nextLong()));
+					results.add(pool.submit(() -> ExperimentRunner.playGame(config)));
+				}
+				for (Future<int[]> f : results) {
+					int[] r = f.get();
+					stats.add(r[0], r[1], Arrays.copyOfRange(r, 2, r.length));
+				}
+				completed += n;
+				writeCheckpoint();
+				log.println(completed + "/" + games + " games");
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A game failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return stats;
+	}
+
+	private static long fingerprint(String configText, int games) {
+		try {
+			MessageDigest sha = MessageDigest.getInstance("SHA-256");
+			sha.update(configText.getBytes(StandardCharsets.UTF_8));
+			sha.update(ByteBuffer.allocate(4).putInt(games).array());
+			return ByteBuffer.wrap(sha.digest()).getLong();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	// false when there is no checkpoint or it belongs to a different batch
+	private boolean readCheckpoint() throws IOException {
+		if (!Files.exists(checkpoint)) return false;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != fingerprint) return false;
+			completed = in.readInt();
+			seeds = new GameRandom(0);
+			seeds.setState(in.readLong());
+			stats = GameStats.readFrom(in);
+			return true;
+		}
+	}
+
+	private void writeCheckpoint() throws IOException {
+		Path dir = checkpoint.toAbsolutePath().getParent();
+		Path tmp = Files.createTempFile(dir, checkpoint.getFileName().toString(), ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fingerprint);
+			out.writeInt(completed);
+			out.writeLong(seeds.getState());
+			stats.writeTo(out);
+		}
+		Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 3) {
+			System.err.println("Usage: java -cp bin catan.BatchRunner <config> <games> <checkpoint> [threads]");
+			System.exit(2);
+		}
+		String configText = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		BatchRunner runner = new BatchRunner(configText, Integer.parseInt(args[1]), Paths.get(args[2]), threads);
+		GameStats stats = runner.run(System.err);
+		System.out.printf("games: %d, unfinished: %d, average rounds: %.2f%n",
+				stats.getGames(), stats.getUnfinished(), stats.getAverageRounds());
+		for (int s = 0; s < stats.getSeats(); s++) {
+			System.out.printf("P%d: win rate %.4f, average VP %.3f%n", s, stats.getWinRate(s), stats.getAverageVp(s));
+		}
+	}
+}
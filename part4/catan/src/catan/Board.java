@@ -4,30 +4,57 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 public class Board {
 	private Map<Integer, Hex> hexes;
 	private Map<Integer, Node> nodes;
 	private Map<Integer, Edge> edges;
+	private Node[] nodeArray;
+	private Edge[] edgeArray;
+	// empty nodes with no building next to them
+	private BitSet open;
+	private GameState state;
+	private Zobrist zobrist;
+	private LongestRoad longestRoad;
+	private Hex robber;
+	// computed on first use, for the current topology and layout
+	private BoardSymmetry symmetry;
+	private Random rng;
+	private DevelopmentDeck deck;
+	private LargestArmy largestArmy;
+	private List<Agent> players = new ArrayList<>();
+
+	public Board() {
+		this(new Random());
+	}
+
+	// rng drives the development deck shuffle and robber steals
+	public Board(Random rng) {
+		this.rng = rng;
+	}
 
 	// Map layout is defined in map.txt — edit that file to change the board
-	private static final String MAP_FILE = "src/catan/map.txt";
+	static final String MAP_FILE = "src/catan/map.txt";
 
 	public void setupMap() {
-		hexes = new HashMap<>();
-		nodes = new HashMap<>();
-		edges = new HashMap<>();
+		setupMap(MAP_FILE);
+	}
 
-		int nodeCount = 54;
+	// a layout in map.txt format from another file, e.g. the map_file config key
+	public void setupMap(String mapFile) {
+		int nodeCount = 0;
 		List<int[]> hexDefs = new ArrayList<>();
 		List<TerrainType> hexTerrains = new ArrayList<>();
+		List<String[]> harborDefs = new ArrayList<>();
 
-		try (BufferedReader br = new BufferedReader(new FileReader(MAP_FILE))) {
+		try (BufferedReader br = new BufferedReader(new FileReader(mapFile))) {
 			String line;
 			// read the map file and parse the hexes and nodes
 			while ((line = br.readLine()) != null) {
@@ -48,65 +75,157 @@ public class Board {
 					for (int i = 0; i < 6; i++) def[2 + i] = Integer.parseInt(parts[3 + i]);
 					hexDefs.add(def);
 					hexTerrains.add(terrain);
+
+				} else if (line.startsWith("harbor:")) {
+					harborDefs.add(line.substring("harbor:".length()).trim().split("\\s+"));
 				}
 			}
 		} catch (IOException e) {
-			throw new RuntimeException("Failed to load map file: " + MAP_FILE, e);
+			throw new RuntimeException("Failed to load map file: " + mapFile, e);
+		}
+
+		int[][] corners = new int[hexDefs.size()][6];
+		int[] ids = new int[hexDefs.size()];
+		int[] tokens = new int[hexDefs.size()];
+		for (int i = 0; i < hexDefs.size(); i++) {
+			int[] def = hexDefs.get(i);
+			ids[i] = def[0];
+			tokens[i] = def[1];
+			for (int c = 0; c < 6; c++) {
+				corners[i][c] = def[2 + c];
+				nodeCount = Math.max(nodeCount, def[2 + c] + 1);
+			}
+		}
+		build(nodeCount, ids, corners, hexTerrains.toArray(new TerrainType[0]), tokens);
+
+		for (String[] parts : harborDefs) {
+			HarborType harbor = HarborType.valueOf(parts[0]);
+			for (int i = 1; i < parts.length; i++) {
+				Node n = nodes.get(Integer.parseInt(parts[i]));
+				if (n.hexes.size() > 2) throw new IllegalArgumentException("Harbor node " + n.getId() + " in " + mapFile + " is not on the coast");
+				n.harbor = harbor;
+			}
 		}
+	}
+
+	/**
+	 * Builds the board from a generated topology instead of map.txt, with
+	 * terrains and tokens indexed by hex. No harbours are placed.
+	 */
+	public void setupMap(BoardTopology topology, TerrainType[] terrains, int[] tokens) {
+		int[][] corners = new int[topology.getHexCount()][6];
+		int[] ids = new int[topology.getHexCount()];
+		for (int h = 0; h < ids.length; h++) {
+			ids[h] = h;
+			for (int c = 0; c < 6; c++) corners[h][c] = topology.getCorner(h, c);
+		}
+		build(topology.getNodeCount(), ids, corners, terrains, tokens);
+	}
+
+	private void build(int nodeCount, int[] ids, int[][] corners, TerrainType[] terrains, int[] tokens) {
+		robber = null;
+		symmetry = null;
+		hexes = new HashMap<>();
+		nodes = new HashMap<>();
+		edges = new HashMap<>();
 
 		// Create all nodes
+		nodeArray = new Node[nodeCount];
 		for (int i = 0; i < nodeCount; i++) {
-			nodes.put(i, new Node(i));
+			nodeArray[i] = new Node(i);
+			nodes.put(i, nodeArray[i]);
 		}
 
 		// Create hexes and wire corners
-		for (int i = 0; i < hexDefs.size(); i++) {
-			int[] def = hexDefs.get(i);
-			int id = def[0];
-			Hex hex = new Hex(id, hexTerrains.get(i), def[1]);
+		for (int i = 0; i < ids.length; i++) {
+			Hex hex = new Hex(ids[i], terrains[i], tokens[i]);
+			hex.resource = terrainToResource(hex.terrain);
+			if (hex.terrain == TerrainType.DESERT && robber == null) robber = hex;
 			for (int c = 0; c < 6; c++) {
-				hex.getCorners().add(nodes.get(def[2 + c]));
+				hex.getCorners().add(nodeArray[corners[i][c]]);
+				nodeArray[corners[i][c]].hexes.add(hex);
 			}
-			hexes.put(id, hex);
+			hexes.put(ids[i], hex);
 		}
 
 		// Derive edges from hex corners (each pair of consecutive corners shares an edge)
-		Set<String> seen = new LinkedHashSet<>();
-		List<int[]> edgeList = new ArrayList<>();
-		for (int[] def : hexDefs) {
+		Set<Long> seen = new HashSet<>();
+		for (int[] hexCorners : corners) {
 			for (int i = 0; i < 6; i++) {
-				int a = def[2 + i];
-				int b = def[2 + (i + 1) % 6];
+				int a = hexCorners[i];
+				int b = hexCorners[(i + 1) % 6];
 				int lo = Math.min(a, b);
 				int hi = Math.max(a, b);
-				if (seen.add(lo + "-" + hi)) {
-					edgeList.add(new int[]{lo, hi});
+				if (seen.add(((long) lo << 32) | hi)) {
+					Node na = nodeArray[lo];
+					Node nb = nodeArray[hi];
+					Edge e = new Edge(edges.size(), na, nb);
+					edges.put(e.getId(), e);
+					na.edges.add(e);
+					nb.edges.add(e);
 				}
 			}
 		}
 
-		for (int i = 0; i < edgeList.size(); i++) {
-			int[] pair = edgeList.get(i);
-			Node na = nodes.get(pair[0]);
-			Node nb = nodes.get(pair[1]);
-			Edge e = new Edge(i, na, nb);
-			edges.put(i, e);
-			na.edges.add(e);
-			nb.edges.add(e);
+		edgeArray = new Edge[edges.size()];
+		for (Edge e : edges.values()) edgeArray[e.getId()] = e;
+		open = new BitSet(nodeCount);
+		open.set(0, nodeCount);
+		deck = new DevelopmentDeck(rng);
+		zobrist = new Zobrist(nodeCount, edges.size(), hexes.size());
+		setPlayers(players);
+	}
+
+	// replaces terrains and number tokens, indexed by hex id, keeping the topology; only valid before any pieces are placed
+	public void applyLayout(TerrainType[] terrains, int[] tokens) {
+		robber = null;
+		symmetry = null;
+		for (int i = 0; i < terrains.length; i++) {
+			Hex hex = hexes.get(i);
+			hex.terrain = terrains[i];
+			hex.numberToken = tokens[i];
+			hex.resource = terrainToResource(hex.terrain);
+			if (hex.terrain == TerrainType.DESERT && robber == null) robber = hex;
+		}
+		state.hash = zobrist.hash(this, state);
+	}
+
+	// adds amount cards per roll to the seat's production for every producing hex around n other than the robber's
+	private void addProduction(int seat, Node n, int amount) {
+		for (Hex hex : n.hexes) {
+			if (hex.resource != null && hex.numberToken >= 2 && hex != robber) {
+				state.production[seat][hex.numberToken][hex.resource.ordinal()] += amount;
+			}
+		}
+	}
+
+	// adds each building's yield on hex to its owner's production, sign times
+	private void addHexProduction(Hex hex, int sign) {
+		if (hex.resource == null || hex.numberToken < 2) return;
+		for (Node n : hex.corners) {
+			if (n.owner == GameState.NO_SEAT) continue;
+			int amount = (n.building == BuildingType.CITY) ? 2 : 1;
+			state.production[n.owner][hex.numberToken][hex.resource.ordinal()] += sign * amount;
 		}
 	}
 
 	public void distributeResources(int rollValue) {
-		for (Hex hex : hexes.values()) {
-			if (hex.numberToken != rollValue) continue;
-			if (hex.terrain == TerrainType.DESERT) continue;
-			ResourceType res = terrainToResource(hex.terrain);
-			for (Node node : hex.corners) {
-				if (node.owner == null) continue;
-				int amount = (node.building == BuildingType.CITY) ? 2 : 1;
-				node.owner.addResource(res, amount);
+		DistributeEvent event = new DistributeEvent();
+		event.begin();
+		int produced = 0;
+		for (int seat = 0; seat < state.seats; seat++) {
+			int[] yield = state.production[seat][rollValue];
+			for (int r = 0; r < yield.length; r++) {
+				if (yield[r] == 0) continue;
+				state.addCards(seat, r, yield[r]);
+				produced += yield[r];
 			}
 		}
+		if (event.shouldCommit()) {
+			event.roll = rollValue;
+			event.cards = produced;
+			event.commit();
+		}
 	}
 
 	private ResourceType terrainToResource(TerrainType t) {
@@ -121,85 +240,226 @@ public class Board {
 	}
 
 	public List<Node> getAvailableNodesForSettlement(Agent a) {
+		BitSet candidates = (BitSet) open.clone();
+		candidates.and(state.roadNodes[a.getSeat()]);
 		List<Node> result = new ArrayList<>();
-		for (Node n : nodes.values()) {
-			if (n.building != BuildingType.NONE) continue;
-			// Distance rule: no adjacent node may have a building
-			boolean distOk = true;
-			for (Edge e : n.edges) {
-				Node neighbor = (e.getA() == n) ? e.getB() : e.getA();
-				if (neighbor.building != BuildingType.NONE) { distOk = false; break; }
-			}
-			if (!distOk) continue;
-			// Road connectivity required
-			boolean connected = false;
-			for (Edge e : n.edges) {
-				if (e.owner == a) { connected = true; break; }
-			}
-			if (!connected) continue;
-			result.add(n);
-		}
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) result.add(nodeArray[i]);
 		return result;
 	}
 
 	public List<Node> getAvailableNodesForSetup(Agent a) {
 		List<Node> result = new ArrayList<>();
-		for (Node n : nodes.values()) {
-			if (n.building != BuildingType.NONE) continue;
-			boolean distOk = true;
-			for (Edge e : n.edges) {
-				Node neighbor = (e.getA() == n) ? e.getB() : e.getA();
-				if (neighbor.building != BuildingType.NONE) { distOk = false; break; }
-			}
-			if (distOk) result.add(n);
-		}
+		for (int i = open.nextSetBit(0); i >= 0; i = open.nextSetBit(i + 1)) result.add(nodeArray[i]);
 		return result;
 	}
 
 	public List<Edge> getAvailableEdgesForRoad(Agent a) {
+		BitSet candidates = state.roadCandidates[a.getSeat()];
 		List<Edge> result = new ArrayList<>();
-		for (Edge e : edges.values()) {
-			if (e.owner != null) continue;
-			Node na = e.getA();
-			Node nb = e.getB();
-			boolean connected = (na.owner == a || nb.owner == a);
-			if (!connected) {
-				for (Edge adj : na.edges) {
-					if (adj != e && adj.owner == a) { connected = true; break; }
-				}
-			}
-			if (!connected) {
-				for (Edge adj : nb.edges) {
-					if (adj != e && adj.owner == a) { connected = true; break; }
-				}
-			}
-			if (connected) result.add(e);
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) result.add(edgeArray[i]);
+		return result;
+	}
+
+	// empty with no building next to it
+	public boolean isSetupCandidate(Node n) {
+		return open.get(n.getId());
+	}
+
+	// empty, no building next to it, and touching one of a's roads
+	public boolean isSettlementCandidate(Agent a, Node n) {
+		return open.get(n.getId()) && state.roadNodes[a.getSeat()].get(n.getId());
+	}
+
+	// unowned and touching one of a's buildings or roads
+	public boolean isRoadCandidate(Agent a, Edge e) {
+		return state.roadCandidates[a.getSeat()].get(e.getId());
+	}
+
+	public Hex getRobberHex() { return robber; }
+
+	public void moveRobber(Hex target) {
+		if (robber != null) addHexProduction(robber, 1);
+		state.hash ^= zobrist.robber(robber) ^ zobrist.robber(target);
+		robber = target;
+		addHexProduction(target, -1);
+	}
+
+	// cards a receives per roll of the given number while the robber stays where it is
+	public int getProduction(Agent a, int roll, ResourceType r) {
+		return state.production[a.getSeat()][roll][r.ordinal()];
+	}
+
+	// agents other than the thief with a building on the hex and at least one card
+	public List<Agent> getRobberVictims(Agent thief, Hex hex) {
+		List<Agent> result = new ArrayList<>();
+		for (Node n : hex.corners) {
+			if (n.owner == GameState.NO_SEAT || n.owner == thief.getSeat()) continue;
+			Agent owner = players.get(n.owner);
+			if (!result.contains(owner) && owner.getHand().getTotalCards() > 0) result.add(owner);
 		}
 		return result;
 	}
 
+	// moves the robber and takes a random card from the victim; returns the stolen resource or null
+	public ResourceType rob(Agent thief, Hex target, Agent victim) {
+		moveRobber(target);
+		if (victim == null) return null;
+		ResourceType stolen = victim.removeRandomResource(rng);
+		if (stolen != null) thief.addResource(stolen, 1);
+		return stolen;
+	}
+
 	public boolean canUpgradeToCity(Agent a, Node n) {
-		return n.owner == a && n.building == BuildingType.SETTLEMENT;
+		return n.owner == a.getSeat() && n.building == BuildingType.SETTLEMENT;
 	}
 
 	public boolean placeSettlement(Agent a, Node n) {
-		n.owner = a;
+		int seat = a.getSeat();
+		state.hash ^= zobrist.node(n);
+		n.owner = seat;
 		n.building = BuildingType.SETTLEMENT;
+		state.hash ^= zobrist.node(n);
 		a.addVictoryPoints(1);
+		a.recordSettlement();
+		if (n.harbor != null) a.addHarbor(n.harbor);
+		addProduction(seat, n, 1);
+		open.clear(n.getId());
+		for (Edge e : n.edges) {
+			open.clear(((e.getA() == n) ? e.getB() : e.getA()).getId());
+			if (e.owner == GameState.NO_SEAT) state.roadCandidates[seat].set(e.getId());
+		}
+		longestRoad.settlementPlaced(seat, n);
 		return true;
 	}
 
 	public boolean placeRoad(Agent a, Edge e) {
-		e.owner = a;
+		addRoad(a, e);
+		longestRoad.roadPlaced(a.getSeat(), e);
 		return true;
 	}
 
+	// everything placeRoad does except the longest-road update
+	private void addRoad(Agent a, Edge e) {
+		int seat = a.getSeat();
+		state.hash ^= zobrist.edge(e);
+		e.owner = seat;
+		state.hash ^= zobrist.edge(e);
+		a.recordRoad();
+		for (BitSet candidates : state.roadCandidates) candidates.clear(e.getId());
+		for (Node n : new Node[] { e.getA(), e.getB() }) {
+			state.roadNodes[seat].set(n.getId());
+			for (Edge adj : n.edges) {
+				if (adj.owner == GameState.NO_SEAT) state.roadCandidates[seat].set(adj.getId());
+			}
+		}
+	}
+
 	public boolean upgradeToCity(Agent a, Node n) {
+		state.hash ^= zobrist.node(n);
 		n.building = BuildingType.CITY;
+		state.hash ^= zobrist.node(n);
 		a.addVictoryPoints(1);
+		a.recordCity();
+		addProduction(a.getSeat(), n, 1);
 		return true;
 	}
 
+	public DevelopmentCardType drawDevelopmentCard() {
+		return deck.draw();
+	}
+
+	public boolean hasDevelopmentCards() {
+		return !deck.isEmpty();
+	}
+
+	void knightPlayed(Agent a) {
+		largestArmy.knightPlayed(a.getSeat());
+	}
+
+	public Agent getLargestArmyHolder() { return playerAt(largestArmy.getHolder()); }
+
+	/**
+	 * Seats the players in list order in a fresh game state. Only valid
+	 * before any pieces are placed.
+	 */
+	public void setPlayers(List<Agent> players) {
+		this.players = players;
+		state = new GameState(players.size());
+		for (int seat = 0; seat < players.size(); seat++) players.get(seat).seat(state, seat);
+		longestRoad = new LongestRoad(nodes.size(), edges.size(), state);
+		largestArmy = new LargestArmy(state);
+		state.hash = zobrist.hash(this, state);
+	}
+
+	public List<Agent> getPlayers() { return players; }
+
+	// removes every building and road, keeping the topology and layout; call setPlayers afterwards
+	void clearPieces() {
+		for (Node n : nodeArray) {
+			n.owner = GameState.NO_SEAT;
+			n.building = BuildingType.NONE;
+		}
+		for (Edge e : edgeArray) e.owner = GameState.NO_SEAT;
+		open.set(0, nodeArray.length);
+	}
+
+	/**
+	 * Places the pieces of a saved position on an empty board after
+	 * setPlayers: a code per node (0 for none, 1 + 2 * seat for a settlement,
+	 * one more for a city) and an owner per edge. Longest roads are computed
+	 * once at the end rather than after every road.
+	 */
+	void placePieces(int[] nodeCodes, int[] edgeOwners) {
+		for (int n = 0; n < nodeCodes.length; n++) {
+			if (nodeCodes[n] == 0) continue;
+			Agent owner = players.get((nodeCodes[n] - 1) / 2);
+			placeSettlement(owner, nodeArray[n]);
+			if ((nodeCodes[n] - 1) % 2 == 1) upgradeToCity(owner, nodeArray[n]);
+		}
+		for (int e = 0; e < edgeOwners.length; e++) {
+			if (edgeOwners[e] != GameState.NO_SEAT) addRoad(players.get(edgeOwners[e]), edgeArray[e]);
+		}
+		longestRoad.rebuild(edgeArray);
+	}
+
+	// overrides the award holders, e.g. after pieces are replayed in a different order than they were built
+	void setAwardHolders(int longestRoadHolder, int largestArmyHolder) {
+		longestRoad.setHolder(longestRoadHolder);
+		largestArmy.setHolder(largestArmyHolder);
+	}
+
+	// recomputes the Zobrist hash after the state arrays were written directly
+	void rehash() {
+		state.hash = zobrist.hash(this, state);
+	}
+
+	GameState getState() { return state; }
+	Random getRandom() { return rng; }
+	DevelopmentDeck getDeck() { return deck; }
+	void setDeck(DevelopmentDeck deck) { this.deck = deck; }
+	Node getNode(int id) { return nodeArray[id]; }
+	Edge getEdge(int id) { return edgeArray[id]; }
+	boolean isBuilt() { return nodeArray != null; }
+
+	private Agent playerAt(int seat) {
+		return (seat == GameState.NO_SEAT) ? null : players.get(seat);
+	}
+
+	public int getLongestRoad(Agent a) { return longestRoad.getLength(a.getSeat()); }
+	// label of e's road component, shared by the owner's roads it connects to without crossing an opponent building; 0 if unowned
+	public int getRoadComponent(Edge e) { return longestRoad.componentOf(e); }
+	public int getRoadComponentCount(Agent a) { return longestRoad.getComponentCount(a.getSeat()); }
+	public Agent getLongestRoadHolder() { return playerAt(longestRoad.getHolder()); }
+
+	// Zobrist hash of the current position, for transposition tables
+	public long getHash() { return state.hash; }
+
+	// symmetries of the board that preserve its layout, for canonicalising positions
+	public BoardSymmetry getSymmetry() {
+		if (symmetry == null) symmetry = BoardSymmetry.of(this);
+		return symmetry;
+	}
+
 	public Map<Integer, Hex> getHexes() { return hexes; }
 	public Map<Integer, Node> getNodes() { return nodes; }
 	public Map<Integer, Edge> getEdges() { return edges; }
@@ -0,0 +1,237 @@
+package catan;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates random layouts for a fixed board topology: terrains and number
+ * tokens are shuffled, no two 6/8 tokens end up on neighbouring hexes, and
+ * optionally the pips per resource must stay within a spread.
+ *
+ * The terrain and token multisets are taken from the board the generator is
+ * built from. One generator reuses its arrays for every layout, so
+ * generate() does not allocate; the result is read through getTerrain and
+ * getToken, written into a board with apply, or printed in map.txt format.
+ *
+ * Usage: java -cp bin catan.BoardGenerator [seed] > src/catan/map.txt
+ */
+public class BoardGenerator {
+	private static final TerrainType[] TERRAINS = TerrainType.values();
+	private static final int DESERT = TerrainType.DESERT.ordinal();
+	// layouts tried before a constraint is taken to be unreachable
+	private static final int MAX_ATTEMPTS = 100_000;
+	private static final int MAX_RED_ATTEMPTS = 1_000;
+
+	private final Hex[] hexes;
+	// neighbours[h] lists the hexes sharing a side with h
+	private final int[][] neighbours;
+	private final boolean[] red;
+	private final int[] terrainPool;
+	// land tokens with the red numbers first
+	private final int[] tokenPool;
+	private final int redCount;
+	private final int[] terrain;
+	private final int[] token;
+	private final int[] landHexes;
+	private final int[] pips = new int[ResourceType.values().length];
+	private int maxPipSpread = -1;
+	private long state;
+
+	public BoardGenerator(Board board, long seed) {
+		int n = board.getHexes().size();
+		hexes = new Hex[n];
+		for (Map.Entry<Integer, Hex> entry : board.getHexes().entrySet()) hexes[entry.getKey()] = entry.getValue();
+
+		// hexes are neighbours when they share a side, i.e. both corners of one of their sides
+		Map<Node, List<Integer>> hexesAt = new HashMap<>();
+		for (int i = 0; i < n; i++) {
+			for (Node c : hexes[i].corners) hexesAt.computeIfAbsent(c, k -> new ArrayList<>()).add(i);
+		}
+		neighbours = new int[n][];
+		for (int i = 0; i < n; i++) {
+			List<Integer> found = new ArrayList<>();
+			for (int c = 0; c < 6; c++) {
+				List<Integer> b = hexesAt.get(hexes[i].corners.get((c + 1) % 6));
+				for (int j : hexesAt.get(hexes[i].corners.get(c))) {
+					if (j != i && b.contains(j) && !found.contains(j)) found.add(j);
+				}
+			}
+			neighbours[i] = found.stream().mapToInt(Integer::intValue).toArray();
+		}
+		red = new boolean[n];
+
+		terrainPool = new int[n];
+		int land = 0;
+		for (int i = 0; i < n; i++) {
+			terrainPool[i] = hexes[i].terrain.ordinal();
+			if (hexes[i].terrain != TerrainType.DESERT) land++;
+		}
+		tokenPool = new int[land];
+		int reds = 0;
+		for (Hex h : hexes) {
+			if (h.terrain != TerrainType.DESERT && isRed(h.numberToken)) tokenPool[reds++] = h.numberToken;
+		}
+		redCount = reds;
+		for (Hex h : hexes) {
+			if (h.terrain != TerrainType.DESERT && !isRed(h.numberToken)) tokenPool[reds++] = h.numberToken;
+		}
+		terrain = new int[n];
+		token = new int[n];
+		landHexes = new int[land];
+		state = seed != 0 ? seed : 0x9E3779B97F4A7C15L;
+	}
+
+	// largest allowed difference in total pips between the richest and poorest resource; -1 disables the check
+	public void setMaxPipSpread(int maxPipSpread) {
+		this.maxPipSpread = maxPipSpread;
+	}
+
+	public void generate() {
+		boolean placed = false;
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			shuffleTerrain();
+			if (!placeTokens()) continue;
+			placed = true;
+			if (maxPipSpread < 0 || pipSpread() <= maxPipSpread) return;
+		}
+		if (!placed) throw new IllegalArgumentException("The 6 and 8 tokens cannot be placed on hexes that do not touch");
+		throw new IllegalArgumentException("map_pip_spread " + maxPipSpread + " cannot be met on this board");
+	}
+
+	private void shuffleTerrain() {
+		System.arraycopy(terrainPool, 0, terrain, 0, terrain.length);
+		for (int i = terrain.length - 1; i > 0; i--) {
+			int j = nextInt(i + 1);
+			int t = terrain[i];
+			terrain[i] = terrain[j];
+			terrain[j] = t;
+		}
+	}
+
+	// moves hexes for the red numbers (6 and 8), none touching, to the front of landHexes, then deals the tokens; false if none were found
+	private boolean placeTokens() {
+		int land = 0;
+		for (int i = 0; i < terrain.length; i++) {
+			token[i] = 0;
+			if (terrain[i] != DESERT) landHexes[land++] = i;
+		}
+		int attempts = 0;
+		while (!pickRedHexes(land)) {
+			// ran out of hexes away from the reds picked so far; start over
+			if (++attempts == MAX_RED_ATTEMPTS) return false;
+		}
+		shuffle(tokenPool, 0, redCount);
+		shuffle(tokenPool, redCount, land);
+		for (int i = 0; i < land; i++) token[landHexes[i]] = tokenPool[i];
+		return true;
+	}
+
+	// visits land hexes in random order, keeping each one that does not touch a red hex kept before it
+	private boolean pickRedHexes(int land) {
+		int picked = 0;
+		for (int i = 0; i < land && picked < redCount; i++) {
+			int j = i + nextInt(land - i);
+			int h = landHexes[j];
+			landHexes[j] = landHexes[i];
+			landHexes[i] = h;
+			if (touchesRed(h)) continue;
+			red[h] = true;
+			landHexes[i] = landHexes[picked];
+			landHexes[picked++] = h;
+		}
+		for (int i = 0; i < picked; i++) red[landHexes[i]] = false;
+		return picked == redCount;
+	}
+
+	private boolean touchesRed(int hex) {
+		for (int n : neighbours[hex]) {
+			if (red[n]) return true;
+		}
+		return false;
+	}
+
+	private void shuffle(int[] a, int from, int to) {
+		for (int i = to - 1; i > from; i--) {
+			int j = from + nextInt(i - from + 1);
+			int t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	private static boolean isRed(int t) {
+		return t == 6 || t == 8;
+	}
+
+	private int pipSpread() {
+		Arrays.fill(pips, 0);
+		for (int i = 0; i < terrain.length; i++) {
+			if (terrain[i] == DESERT) continue;
+			pips[terrain[i]] += 6 - Math.abs(7 - token[i]);
+		}
+		int min = Integer.MAX_VALUE;
+		int max = 0;
+		for (int p : pips) {
+			min = Math.min(min, p);
+			max = Math.max(max, p);
+		}
+		return max - min;
+	}
+
+	// xorshift64* with a multiply-shift range reduction
+	private int nextInt(int bound) {
+		state ^= state >>> 12;
+		state ^= state << 25;
+		state ^= state >>> 27;
+		long r = (state * 0x2545F4914F6CDD1DL) >>> 32;
+		return (int) ((r * bound) >>> 32);
+	}
+
+	public int getHexCount() { return terrain.length; }
+	public TerrainType getTerrain(int hex) { return TERRAINS[terrain[hex]]; }
+	public int getToken(int hex) { return token[hex]; }
+
+	// copies the current layout into a board built on the same topology, before any pieces are placed
+	public void apply(Board board) {
+		TerrainType[] t = new TerrainType[terrain.length];
+		for (int i = 0; i < t.length; i++) t[i] = TERRAINS[terrain[i]];
+		board.applyLayout(t, token);
+	}
+
+	// writes the current layout, with the topology and harbours of the source board, in map.txt format
+	public void writeMap(Appendable out, Board board) {
+		try {
+			out.append("# Generated by BoardGenerator\n");
+			out.append("node_count: ").append(String.valueOf(board.getNodes().size())).append("\n\n");
+			for (int i = 0; i < hexes.length; i++) {
+				out.append(String.format("hex: %-2d %-7s %2d ", i, TERRAINS[terrain[i]], token[i]));
+				for (Node n : hexes[i].corners) out.append(String.format(" %2d", n.getId()));
+				out.append('\n');
+			}
+			StringBuilder harbors = new StringBuilder();
+			for (Edge e : board.getEdges().values()) {
+				HarborType h = e.getA().harbor;
+				if (h != null && h == e.getB().harbor) {
+					harbors.append(String.format("harbor: %-7s %2d %2d\n", h, e.getA().getId(), e.getB().getId()));
+				}
+			}
+			if (harbors.length() > 0) out.append('\n').append(harbors);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write map", e);
+		}
+	}
+
+	public static void main(String[] args) {
+		Board board = new Board();
+		board.setupMap();
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime();
+		BoardGenerator generator = new BoardGenerator(board, seed);
+		generator.generate();
+		generator.writeMap(System.out, board);
+	}
+}
@@ -0,0 +1,278 @@
+package catan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rotations and reflections of a board, as precomputed hex, node and
+ * edge permutation tables, and a canonical form of the pieces on the board
+ * under them. Two positions that are images of each other under a symmetry
+ * have the same canonical form, so it can key caches of evaluated positions.
+ *
+ * Symmetries are found from the topology alone: mapping one hex onto another
+ * with one of its 6 rotations or 2 orientations fixes the image of every hex
+ * that shares a side with it, and so on across the board. The standard board
+ * has 12; a layout usually breaks most of them, and of() keeps only those
+ * that also preserve terrains, number tokens and harbours.
+ */
+public final class BoardSymmetry {
+	// permutation tables indexed [symmetry][id]; symmetry 0 is the identity
+	private final int[][] hexPerm;
+	private final int[][] nodePerm;
+	private final int[][] edgePerm;
+
+	private BoardSymmetry(List<int[][]> symmetries) {
+		int n = symmetries.size();
+		hexPerm = new int[n][];
+		nodePerm = new int[n][];
+		edgePerm = new int[n][];
+		for (int s = 0; s < n; s++) {
+			hexPerm[s] = symmetries.get(s)[0];
+			nodePerm[s] = symmetries.get(s)[1];
+			edgePerm[s] = symmetries.get(s)[2];
+		}
+	}
+
+	/** Symmetries of the board that preserve its layout; at least the identity. */
+	public static BoardSymmetry of(Board board) {
+		return new BoardSymmetry(new Search(board, true).run());
+	}
+
+	/** All symmetries of the board's hex topology, ignoring terrains, tokens and harbours. */
+	public static BoardSymmetry ofTopology(Board board) {
+		return new BoardSymmetry(new Search(board, false).run());
+	}
+
+	public int size() { return hexPerm.length; }
+	public int mapHex(int symmetry, int hex) { return hexPerm[symmetry][hex]; }
+	public int mapNode(int symmetry, int node) { return nodePerm[symmetry][node]; }
+	public int mapEdge(int symmetry, int edge) { return edgePerm[symmetry][edge]; }
+
+	/**
+	 * The lexicographically smallest encoding of the board over all the
+	 * symmetries: the layout per hex, the robber's hex, then the building and
+	 * owner per node and the owner per edge. Hands and the seat to move are
+	 * unaffected by symmetry and are left to the caller.
+	 */
+	public int[] canonicalForm(Board board) {
+		int[] best = encode(board, 0, null);
+		int[] candidate = new int[best.length];
+		for (int s = 1; s < size(); s++) {
+			encode(board, s, candidate);
+			if (Arrays.compare(candidate, best) < 0) {
+				int[] t = best;
+				best = candidate;
+				candidate = t;
+			}
+		}
+		return best;
+	}
+
+	/** The symmetry that takes the board to its canonical form. */
+	public int canonicalSymmetry(Board board) {
+		int[] best = encode(board, 0, null);
+		int[] candidate = new int[best.length];
+		int bestSymmetry = 0;
+		for (int s = 1; s < size(); s++) {
+			encode(board, s, candidate);
+			if (Arrays.compare(candidate, best) < 0) {
+				System.arraycopy(candidate, 0, best, 0, best.length);
+				bestSymmetry = s;
+			}
+		}
+		return bestSymmetry;
+	}
+
+	private int[] encode(Board board, int s, int[] out) {
+		Map<Integer, Hex> hexes = board.getHexes();
+		Map<Integer, Node> nodes = board.getNodes();
+		Map<Integer, Edge> edges = board.getEdges();
+		int hexBase = 0;
+		int robberAt = hexes.size();
+		int nodeBase = robberAt + 1;
+		int edgeBase = nodeBase + nodes.size();
+		if (out == null) out = new int[edgeBase + edges.size()];
+		for (Hex h : hexes.values()) {
+			out[hexBase + hexPerm[s][h.getId()]] = h.terrain.ordinal() * 13 + h.numberToken;
+		}
+		Hex robber = board.getRobberHex();
+		out[robberAt] = (robber == null) ? -1 : hexPerm[s][robber.getId()];
+		for (Node n : nodes.values()) {
+			int code = 0;
+			if (n.building != BuildingType.NONE) code = 1 + 2 * n.owner + (n.building == BuildingType.CITY ? 1 : 0);
+			out[nodeBase + nodePerm[s][n.getId()]] = code;
+		}
+		for (Edge e : edges.values()) {
+			out[edgeBase + edgePerm[s][e.getId()]] = e.owner + 1;
+		}
+		return out;
+	}
+
+	/** Flag-by-flag search for the board's automorphisms. */
+	private static final class Search {
+		private final Board board;
+		private final boolean keepLayout;
+		private final Hex[] hexes;
+		private final int nodeCount;
+		// corners[h][i] is the node id of corner i of hex h, in cyclic order
+		private final int[][] corners;
+		// side[h][i] is the hex sharing corners i and i + 1 of hex h, or -1
+		private final int[][] side;
+		private final Map<Long, Integer> edgeIds = new HashMap<>();
+
+		Search(Board board, boolean keepLayout) {
+			this.board = board;
+			this.keepLayout = keepLayout;
+			hexes = new Hex[board.getHexes().size()];
+			for (Hex h : board.getHexes().values()) hexes[h.getId()] = h;
+			nodeCount = board.getNodes().size();
+			corners = new int[hexes.length][6];
+			for (int h = 0; h < hexes.length; h++) {
+				for (int i = 0; i < 6; i++) corners[h][i] = hexes[h].corners.get(i).getId();
+			}
+			for (Edge e : board.getEdges().values()) edgeIds.put(key(e.getA().getId(), e.getB().getId()), e.getId());
+
+			Map<Long, List<Integer>> sides = new HashMap<>();
+			for (int h = 0; h < hexes.length; h++) {
+				for (int i = 0; i < 6; i++) {
+					sides.computeIfAbsent(key(corners[h][i], corners[h][(i + 1) % 6]), k -> new ArrayList<>()).add(h);
+				}
+			}
+			side = new int[hexes.length][6];
+			for (int h = 0; h < hexes.length; h++) {
+				for (int i = 0; i < 6; i++) {
+					side[h][i] = -1;
+					for (int other : sides.get(key(corners[h][i], corners[h][(i + 1) % 6]))) {
+						if (other != h) side[h][i] = other;
+					}
+				}
+			}
+		}
+
+		private static long key(int a, int b) {
+			return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+		}
+
+		private int degree(int h) {
+			int d = 0;
+			for (int other : side[h]) {
+				if (other >= 0) d++;
+			}
+			return d;
+		}
+
+		List<int[][]> run() {
+			List<int[][]> found = new ArrayList<>();
+			if (hexes.length == 0) return found;
+			// anchor on a hex with the rarest number of neighbours; it can only map to hexes with as many
+			int[] byDegree = new int[7];
+			for (int h = 0; h < hexes.length; h++) byDegree[degree(h)]++;
+			int anchor = 0;
+			for (int h = 0; h < hexes.length; h++) {
+				if (byDegree[degree(h)] < byDegree[degree(anchor)]) anchor = h;
+			}
+			// the identity comes first
+			for (int target = anchor, t = 0; t < hexes.length; t++, target = (anchor + t) % hexes.length) {
+				if (degree(target) != degree(anchor)) continue;
+				for (int direction = 1; direction >= -1; direction -= 2) {
+					for (int rotation = 0; rotation < 6; rotation++) {
+						int[][] symmetry = extend(anchor, target, rotation, direction);
+						if (symmetry != null) found.add(symmetry);
+					}
+				}
+			}
+			return found;
+		}
+
+		// maps corner i of anchor to corner rotation + direction * i of target and propagates; null if that is no symmetry
+		private int[][] extend(int anchor, int target, int rotation, int direction) {
+			int[] hexImage = new int[hexes.length];
+			int[] offset = new int[hexes.length];
+			int[] turn = new int[hexes.length];
+			boolean[] taken = new boolean[hexes.length];
+			int[] nodeImage = new int[nodeCount];
+			Arrays.fill(hexImage, -1);
+			Arrays.fill(nodeImage, -1);
+
+			int[] queue = new int[hexes.length];
+			int head = 0;
+			int tail = 0;
+			hexImage[anchor] = target;
+			offset[anchor] = rotation;
+			turn[anchor] = direction;
+			taken[target] = true;
+			queue[tail++] = anchor;
+			while (head < tail) {
+				int a = queue[head++];
+				int b = hexImage[a];
+				for (int i = 0; i < 6; i++) {
+					int j = Math.floorMod(offset[a] + turn[a] * i, 6);
+					int node = corners[a][i];
+					if (nodeImage[node] == -1) nodeImage[node] = corners[b][j];
+					else if (nodeImage[node] != corners[b][j]) return null;
+				}
+				for (int i = 0; i < 6; i++) {
+					int j = Math.floorMod(offset[a] + turn[a] * i, 6);
+					int imageSide = (turn[a] == 1) ? j : Math.floorMod(j - 1, 6);
+					int next = side[a][i];
+					int nextImage = side[b][imageSide];
+					if ((next < 0) != (nextImage < 0)) return null;
+					if (next < 0) continue;
+					if (hexImage[next] >= 0) {
+						if (hexImage[next] != nextImage) return null;
+						continue;
+					}
+					if (taken[nextImage]) return null;
+					// the shared side fixes how next lines up with its image
+					int x = corners[a][i];
+					int y = corners[a][(i + 1) % 6];
+					int p = indexOf(corners[next], x);
+					int step = (indexOf(corners[next], y) == (p + 1) % 6) ? 1 : -1;
+					int q = indexOf(corners[nextImage], nodeImage[x]);
+					int imageStep = (indexOf(corners[nextImage], nodeImage[y]) == (q + 1) % 6) ? 1 : -1;
+					hexImage[next] = nextImage;
+					turn[next] = step * imageStep;
+					offset[next] = Math.floorMod(q - turn[next] * p, 6);
+					taken[nextImage] = true;
+					queue[tail++] = next;
+				}
+			}
+			if (tail < hexes.length) return null;
+
+			// nodes on no hex stay where they are
+			for (int n = 0; n < nodeCount; n++) {
+				if (nodeImage[n] == -1) nodeImage[n] = n;
+			}
+			int[] edgeImage = new int[board.getEdges().size()];
+			for (Edge e : board.getEdges().values()) {
+				Integer image = edgeIds.get(key(nodeImage[e.getA().getId()], nodeImage[e.getB().getId()]));
+				if (image == null) return null;
+				edgeImage[e.getId()] = image;
+			}
+			if (keepLayout && !preservesLayout(hexImage, nodeImage)) return null;
+			return new int[][] { hexImage, nodeImage, edgeImage };
+		}
+
+		private boolean preservesLayout(int[] hexImage, int[] nodeImage) {
+			for (int h = 0; h < hexes.length; h++) {
+				Hex image = hexes[hexImage[h]];
+				if (image.terrain != hexes[h].terrain || image.numberToken != hexes[h].numberToken) return false;
+			}
+			Map<Integer, Node> nodes = board.getNodes();
+			for (int n = 0; n < nodeCount; n++) {
+				if (nodes.get(nodeImage[n]).harbor != nodes.get(n).harbor) return false;
+			}
+			return true;
+		}
+
+		private static int indexOf(int[] cycle, int node) {
+			for (int i = 0; i < cycle.length; i++) {
+				if (cycle[i] == node) return i;
+			}
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package catan;
+
+import java.util.Arrays;
+
+/**
+ * Hex, node and edge structure of a board derived from axial hex
+ * coordinates, in time linear in the number of hexes.
+ *
+ * Pointy-top hexes are placed on an integer lattice where hex (q, r) has its
+ * centre at (2q + r, 3r) and its corners at the offsets below. Shared
+ * corners land on the same lattice point, so nodes and edges are
+ * de-duplicated by hashing their coordinates instead of comparing positions.
+ */
+public class BoardTopology {
+	// corner offsets clockwise from the top, in lattice units
+	private static final int[] CORNER_DX = { 0, 1, 1, 0, -1, -1 };
+	private static final int[] CORNER_DY = { -2, -1, 1, 2, 1, -1 };
+
+	private final int[] hexQ;
+	private final int[] hexR;
+	private final int[][] hexCorners;
+	private int[] nodeX;
+	private int[] nodeY;
+	private int nodeCount;
+	private int[] edgeA;
+	private int[] edgeB;
+	private int edgeCount;
+
+	private BoardTopology(int[] hexQ, int[] hexR) {
+		this.hexQ = hexQ;
+		this.hexR = hexR;
+		int hexCount = hexQ.length;
+		hexCorners = new int[hexCount][6];
+		nodeX = new int[hexCount * 6];
+		nodeY = new int[hexCount * 6];
+		edgeA = new int[hexCount * 6];
+		edgeB = new int[hexCount * 6];
+
+		LongIntTable nodeIds = new LongIntTable(hexCount * 6);
+		for (int h = 0; h < hexCount; h++) {
+			int cx = 2 * hexQ[h] + hexR[h];
+			int cy = 3 * hexR[h];
+			for (int c = 0; c < 6; c++) {
+				int x = cx + CORNER_DX[c];
+				int y = cy + CORNER_DY[c];
+				int id = nodeIds.putIfAbsent(pack(x, y), nodeCount);
+				if (id == nodeCount) {
+					nodeX[nodeCount] = x;
+					nodeY[nodeCount] = y;
+					nodeCount++;
+				}
+				hexCorners[h][c] = id;
+			}
+		}
+
+		LongIntTable edgeIds = new LongIntTable(hexCount * 6);
+		for (int h = 0; h < hexCount; h++) {
+			for (int c = 0; c < 6; c++) {
+				int a = hexCorners[h][c];
+				int b = hexCorners[h][(c + 1) % 6];
+				int lo = Math.min(a, b);
+				int hi = Math.max(a, b);
+				if (edgeIds.putIfAbsent(pack(lo, hi), edgeCount) == edgeCount) {
+					edgeA[edgeCount] = lo;
+					edgeB[edgeCount] = hi;
+					edgeCount++;
+				}
+			}
+		}
+		nodeX = Arrays.copyOf(nodeX, nodeCount);
+		nodeY = Arrays.copyOf(nodeY, nodeCount);
+		edgeA = Arrays.copyOf(edgeA, edgeCount);
+		edgeB = Arrays.copyOf(edgeB, edgeCount);
+	}
+
+	/** All hexes within the given distance of the centre; radius 2 is the standard 19-hex board. */
+	public static BoardTopology hexagon(int radius) {
+		int count = 3 * radius * (radius + 1) + 1;
+		int[] q = new int[count];
+		int[] r = new int[count];
+		int i = 0;
+		for (int row = -radius; row <= radius; row++) {
+			for (int col = Math.max(-radius, -row - radius); col <= Math.min(radius, -row + radius); col++) {
+				q[i] = col;
+				r[i] = row;
+				i++;
+			}
+		}
+		return new BoardTopology(q, r);
+	}
+
+	/** The 5-6 player extension board: rows of 3, 4, 5, 6, 5, 4 and 3 hexes. */
+	public static BoardTopology extension() {
+		return rows(3, 4, 5, 6, 5, 4, 3);
+	}
+
+	/** Rows of hexes of the given lengths, top to bottom, each centred under the widest row. */
+	public static BoardTopology rows(int... lengths) {
+		int count = 0;
+		int widest = 0;
+		for (int length : lengths) {
+			count += length;
+			widest = Math.max(widest, length);
+		}
+		int[] q = new int[count];
+		int[] r = new int[count];
+		int i = 0;
+		for (int row = 0; row < lengths.length; row++) {
+			// x = 2q + r in lattice units; centre each row on x = widest - 1
+			int first = Math.floorDiv(widest - lengths[row] - row, 2);
+			for (int col = 0; col < lengths[row]; col++) {
+				q[i] = first + col;
+				r[i] = row;
+				i++;
+			}
+		}
+		return new BoardTopology(q, r);
+	}
+
+	private static long pack(int hi, int lo) {
+		return ((long) hi << 32) | (lo & 0xFFFFFFFFL);
+	}
+
+	public int getHexCount() { return hexQ.length; }
+	public int getNodeCount() { return nodeCount; }
+	public int getEdgeCount() { return edgeCount; }
+	public int getHexQ(int hex) { return hexQ[hex]; }
+	public int getHexR(int hex) { return hexR[hex]; }
+	public int getCorner(int hex, int corner) { return hexCorners[hex][corner]; }
+	public int getNodeX(int node) { return nodeX[node]; }
+	public int getNodeY(int node) { return nodeY[node]; }
+	public int getEdgeA(int edge) { return edgeA[edge]; }
+	public int getEdgeB(int edge) { return edgeB[edge]; }
+
+	/**
+	 * A terrain and token assignment for this topology that repeats the
+	 * base-game mix (4 wood, 3 brick, 4 sheep, 4 wheat, 3 ore and a desert per
+	 * 19 hexes, with the base-game tokens on land). Meant as the multiset for
+	 * BoardGenerator to shuffle, not as a playable layout on its own.
+	 */
+	public void defaultLayout(TerrainType[] terrains, int[] tokens) {
+		TerrainType[] mix = {
+			TerrainType.DESERT,
+			TerrainType.WOOD, TerrainType.SHEEP, TerrainType.WHEAT, TerrainType.BRICK, TerrainType.ORE,
+			TerrainType.WOOD, TerrainType.SHEEP, TerrainType.WHEAT, TerrainType.BRICK, TerrainType.ORE,
+			TerrainType.WOOD, TerrainType.SHEEP, TerrainType.WHEAT, TerrainType.BRICK, TerrainType.ORE,
+			TerrainType.WOOD, TerrainType.SHEEP, TerrainType.WHEAT
+		};
+		int[] numbers = { 2, 3, 3, 4, 4, 5, 5, 6, 6, 8, 8, 9, 9, 10, 10, 11, 11, 12 };
+		int land = 0;
+		for (int h = 0; h < getHexCount(); h++) {
+			terrains[h] = mix[h % mix.length];
+			tokens[h] = (terrains[h] == TerrainType.DESERT) ? 0 : numbers[land++ % numbers.length];
+		}
+	}
+
+	/** Open-addressing long to int map; lookups and inserts are expected O(1). */
+	private static final class LongIntTable {
+		private final long[] keys;
+		private final int[] values;
+		private final boolean[] used;
+		private final int mask;
+
+		LongIntTable(int expected) {
+			int capacity = Integer.highestOneBit(Math.max(4, expected * 2) - 1) << 1;
+			keys = new long[capacity];
+			values = new int[capacity];
+			used = new boolean[capacity];
+			mask = capacity - 1;
+		}
+
+		// returns the existing value for key, or stores and returns value
+		int putIfAbsent(long key, int value) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			int slot = (int) (h ^ (h >>> 32)) & mask;
+			while (used[slot]) {
+				if (keys[slot] == key) return values[slot];
+				slot = (slot + 1) & mask;
+			}
+			used[slot] = true;
+			keys[slot] = key;
+			values[slot] = value;
+			return value;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package catan;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Plans the builds an agent makes when its turn starts over the hand limit.
+ * The legal spots are generated once, from the board's candidate sets, and
+ * then kept current against a copy of the hand as builds are planned: a
+ * planned road opens the edges and nodes around its far end, a planned
+ * settlement closes the nodes around it and becomes a city spot. Planning a
+ * whole sequence costs one move generation however many cards it spends.
+ *
+ * The agent picks the builds: take a kind whose count is non-zero, by
+ * preference, and the planner updates the spots and the hand. plan() does
+ * this with a fixed order of kinds.
+ */
+public final class BuildPlanner {
+	public enum Build {
+		CITY(Cost.CITY),
+		SETTLEMENT(Cost.SETTLEMENT),
+		DEVELOPMENT_CARD(Cost.DEVELOPMENT_CARD),
+		ROAD(Cost.ROAD);
+
+		private final Cost cost;
+
+		Build(Cost cost) {
+			this.cost = cost;
+		}
+	}
+
+	/** Cities first, as they pay the most per card, then settlements, cards and roads. */
+	public static final Build[] DEFAULT_PREFERENCE = Build.values();
+
+	private final Board board;
+	private final int[] hand;
+	private final BitSet settlementSpots;
+	private final BitSet roadSpots = new BitSet();
+	private final BitSet citySpots = new BitSet();
+	// nodes a planned settlement has closed, and planned roads, which are still unowned on the board
+	private final BitSet closed = new BitSet();
+	private final BitSet plannedRoads = new BitSet();
+	private int settlements;
+	private int cities;
+	private int roads;
+	private int cards;
+	private final List<Action> plan = new ArrayList<>();
+
+	public BuildPlanner(Board board, Agent a) {
+		this.board = board;
+		this.hand = a.getHand().counts().clone();
+		settlementSpots = new BitSet();
+		for (Node n : board.getAvailableNodesForSettlement(a)) settlementSpots.set(n.getId());
+		for (Edge e : board.getAvailableEdgesForRoad(a)) roadSpots.set(e.getId());
+		for (Node n : board.getNodes().values()) {
+			if (board.canUpgradeToCity(a, n)) citySpots.set(n.getId());
+		}
+		settlements = a.getSettlementCount();
+		cities = a.getCityCount();
+		roads = a.getRoadCount();
+		cards = board.getDeck().remaining();
+	}
+
+	/** Builds in preference order, the lowest-numbered spot of the first affordable kind, until the hand is within the limit. */
+	public static List<Action> plan(Board board, Agent a, Build[] preference) {
+		BuildPlanner planner = new BuildPlanner(board, a);
+		while (planner.isOverLimit()) {
+			Build next = null;
+			for (Build b : preference) {
+				if (planner.count(b) > 0) {
+					next = b;
+					break;
+				}
+			}
+			if (next == null) break;
+			planner.take(next, 0);
+		}
+		return planner.getPlan();
+	}
+
+	public boolean isOverLimit() {
+		int total = 0;
+		for (int count : hand) total += count;
+		return total > Agent.HAND_LIMIT;
+	}
+
+	// spots the hand can pay for now: 0 or 1 for development cards
+	public int count(Build b) {
+		if (!affords(b.cost)) return 0;
+		switch (b) {
+			case CITY:
+				return (cities < MoveValidator.MAX_CITIES) ? citySpots.cardinality() : 0;
+			case SETTLEMENT:
+				return (settlements < MoveValidator.MAX_SETTLEMENTS) ? settlementSpots.cardinality() : 0;
+			case DEVELOPMENT_CARD:
+				return (cards > 0) ? 1 : 0;
+			default:
+				return (roads < MoveValidator.MAX_ROADS) ? roadSpots.cardinality() : 0;
+		}
+	}
+
+	/** Plans the index-th spot, in id order, of a kind with count(b) > index. */
+	public Action take(Build b, int index) {
+		for (int r = 0; r < hand.length; r++) hand[r] -= b.cost.amounts()[r];
+		Action action;
+		switch (b) {
+			case CITY: {
+				Node n = board.getNode(nth(citySpots, index));
+				citySpots.clear(n.getId());
+				settlements--;
+				cities++;
+				action = new UpgradeToCityAction(n);
+				break;
+			}
+			case SETTLEMENT: {
+				Node n = board.getNode(nth(settlementSpots, index));
+				settlementSpots.clear(n.getId());
+				closed.set(n.getId());
+				for (Edge e : n.edges) {
+					Node other = (e.getA() == n) ? e.getB() : e.getA();
+					settlementSpots.clear(other.getId());
+					closed.set(other.getId());
+					if (e.owner == GameState.NO_SEAT && !plannedRoads.get(e.getId())) roadSpots.set(e.getId());
+				}
+				citySpots.set(n.getId());
+				settlements++;
+				action = new BuildSettlementAction(n);
+				break;
+			}
+			case DEVELOPMENT_CARD:
+				cards--;
+				action = new BuyDevelopmentCardAction();
+				break;
+			default: {
+				Edge e = board.getEdge(nth(roadSpots, index));
+				roadSpots.clear(e.getId());
+				plannedRoads.set(e.getId());
+				for (Node n : new Node[] { e.getA(), e.getB() }) {
+					if (board.isSetupCandidate(n) && !closed.get(n.getId())) settlementSpots.set(n.getId());
+					for (Edge adj : n.edges) {
+						if (adj.owner == GameState.NO_SEAT && !plannedRoads.get(adj.getId())) roadSpots.set(adj.getId());
+					}
+				}
+				roads++;
+				action = new BuildRoadAction(e);
+				break;
+			}
+		}
+		plan.add(action);
+		return action;
+	}
+
+	public List<Action> getPlan() {
+		return plan;
+	}
+
+	private boolean affords(Cost c) {
+		for (int r = 0; r < hand.length; r++) {
+			if (hand[r] < c.amounts()[r]) return false;
+		}
+		return true;
+	}
+
+	private static int nth(BitSet bits, int index) {
+		int i = bits.nextSetBit(0);
+		for (int k = 0; k < index; k++) i = bits.nextSetBit(i + 1);
+		return i;
+	}
+}
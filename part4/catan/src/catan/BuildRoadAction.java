@@ -12,6 +12,11 @@ public class BuildRoadAction extends Action {
 		return b.placeRoad(a, target);
 	}
 
+	@Override
+	public boolean isLegal(Board b, Agent a, MoveValidator rules) {
+		return rules.canPlaceRoad(b, a, target);
+	}
+
 	public String describe() {
 		return "Built road at edge " + target.getId();
 	}
@@ -12,6 +12,11 @@ public class BuildSettlementAction extends Action {
 		return b.placeSettlement(a, target);
 	}
 
+	@Override
+	public boolean isLegal(Board b, Agent a, MoveValidator rules) {
+		return rules.canPlaceSettlement(b, a, target);
+	}
+
 	public String describe() {
 		return "Built settlement at node " + target.getId();
 	}
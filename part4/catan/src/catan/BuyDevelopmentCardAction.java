@@ -0,0 +1,20 @@
+package catan;
+
+public class BuyDevelopmentCardAction extends Action {
+	public boolean execute(Board b, Agent a) {
+		DevelopmentCardType card = b.drawDevelopmentCard();
+		if (card == null) return false;
+		a.pay(Cost.DEVELOPMENT_CARD);
+		a.addDevelopmentCard(card);
+		return true;
+	}
+
+	@Override
+	public boolean isLegal(Board b, Agent a, MoveValidator rules) {
+		return rules.canBuyDevelopmentCard(b, a);
+	}
+
+	public String describe() {
+		return "Bought a development card";
+	}
+}
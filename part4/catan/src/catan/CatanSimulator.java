@@ -1,54 +1,121 @@
 package catan;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
 public class CatanSimulator {
+	private static final int MAX_TRADES_PER_TURN = 4;
+
 	private int currentRound;
+	// seat whose turn is next within currentRound
+	private int currentSeat;
 	private int maxRounds;
+	private int roundsPlayed;
+	private Agent winner;
+	private boolean finished;
+	private MetricsExporter exporter;
 	private Board board;
 	private Dice dice;
 	private List<Agent> agents;
 	private MoveValidator rules;
 	private Random rng;
+	private GameConfig config;
+	private SimulatorMetrics metrics;
+	// per decision, 0 when unbounded
+	private long decisionBudget;
+	private DecisionStats[] decisionStats;
+	// for setup analysis: a layout to play instead of a generated one, and forced {node, edge} setup placements in snake order
+	private TerrainType[] fixedTerrains;
+	private int[] fixedTokens;
+	private int[][] setupPlacements = new int[0][];
+	private int placementsMade;
+	// null when nothing is listening, so no callback arguments are built
+	private GameListener listener;
 
 	public CatanSimulator(String configPath) {
-		this.maxRounds = readTurnsFromConfig(configPath);
+		this(GameConfig.load(configPath));
+	}
+
+	public CatanSimulator(GameConfig config) {
+		this.config = config;
+		this.maxRounds = config.getTurns();
 		this.currentRound = 0;
-		this.board = new Board();
-		this.dice = new Dice();
+		// every random stream in the game is split off one seed, so a seeded game replays exactly
+		Random master = new GameRandom(config.isSeeded() ? config.getSeed() : new SecureRandom().nextLong());
+		this.board = new Board(new GameRandom(master.nextLong()));
+		this.dice = new Dice(new GameRandom(master.nextLong()));
 		this.rules = new MoveValidator();
-		this.rng = new Random();
+		this.rng = new GameRandom(master.nextLong());
 		this.agents = new ArrayList<>();
-		for (int i = 0; i < 4; i++) {
-			agents.add(new RandomAgent(i, rules));
-		}
-	}
-
-	private int readTurnsFromConfig(String configPath) {
-		try (BufferedReader br = new BufferedReader(new FileReader(configPath))) {
-			String line;
-			while ((line = br.readLine()) != null) {
-				line = line.trim();
-				if (line.startsWith("turns:")) {
-					int val = Integer.parseInt(line.substring("turns:".length()).trim());
-					if (val < 1) return 1;
-					if (val > 8192) return 8192;
-					return val;
-				}
-			}
-		} catch (IOException | NumberFormatException e) {
-			System.err.println("Warning: could not read config (" + e.getMessage() + "); defaulting to 100 rounds.");
+		this.metrics = config.isJmxEnabled() ? SimulatorMetrics.global() : null;
+		this.decisionBudget = config.getDecisionBudgetNanos();
+		for (int i = 0; i < config.getPlayers(); i++) {
+			agents.add(createAgent(config.getAgentType(i), i, new GameRandom(master.nextLong())));
+		}
+		// here as well as in setupGame, since a restored simulator never runs setupGame
+		resetDecisionStats();
+		if (config.getSpectatorPort() > 0) {
+			GameListener spectator = SpectatorServer.shared(config.getSpectatorPort()).watch(config.getSpectatorSample());
+			if (spectator != null) addListener(spectator);
 		}
-		return 100;
+	}
+
+	private void resetDecisionStats() {
+		decisionStats = new DecisionStats[agents.size()];
+		for (int s = 0; s < decisionStats.length; s++) decisionStats[s] = new DecisionStats();
+	}
+
+	private Agent createAgent(String type, int id, Random agentRng) {
+		switch (type) {
+			case "random":
+				return new RandomAgent(id, rules, agentRng);
+			default:
+				throw new IllegalArgumentException("Unknown agent type: " + type);
+		}
+	}
+
+	public void addListener(GameListener l) {
+		listener = (listener == null) ? l : GameListener.combine(listener, l);
 	}
 
 	public void runSimulation() {
-		board.setupMap();
+		long allocatedAtStart = (metrics != null) ? metrics.threadAllocatedBytes() : 0;
+		setupGame();
+		if (config.getMetricsFile() != null) {
+			exporter = new MetricsExporter(Paths.get(config.getMetricsFile()),
+					config.getMetricsFormat(), config.isMetricsCompressed());
+		}
+		try {
+			while (playTurn()) {
+				// each call plays one agent's turn
+			}
+		} finally {
+			if (exporter != null) exporter.close();
+			exporter = null;
+		}
+		if (metrics != null) {
+			metrics.recordGame(allocatedAtStart < 0 ? -1 : metrics.threadAllocatedBytes() - allocatedAtStart);
+		}
+	}
+
+	/** Builds the board and plays the setup placements; the first turn is round 1, seat 0. */
+	public void setupGame() {
+		setupBoard();
+		if (fixedTerrains != null) {
+			board.applyLayout(fixedTerrains, fixedTokens);
+		} else if (config.isRandomMap() || config.createTopology() != null) {
+			BoardGenerator generator = new BoardGenerator(board, rng.nextLong());
+			generator.setMaxPipSpread(config.getMapPipSpread());
+			generator.generate();
+			generator.apply(board);
+		}
+		board.setPlayers(agents);
+		placementsMade = 0;
+		if (listener != null) listener.onGameStart(board);
 
 		// Setup phase: each agent places 2 settlements and 2 roads
 		for (Agent a : agents) {
@@ -57,105 +124,328 @@ public class CatanSimulator {
 		for (int i = agents.size() - 1; i >= 0; i--) {
 			doSetupPlacement(agents.get(i), true);
 		}
+		resetDecisionStats();
+		currentRound = 1;
+		currentSeat = 0;
+		roundsPlayed = 0;
+		winner = null;
+		finished = false;
+	}
 
-		// Main game loop
-		for (currentRound = 1; currentRound <= maxRounds; currentRound++) {
-			for (Agent a : agents) {
-				runTurn(a);
-			}
-			printRoundSummary();
-			if (checkWinCondition()) break;
+	// the topology from map_file (map.txt by default) or board_shape, with its default layout
+	void setupBoard() {
+		BoardTopology topology = config.createTopology();
+		if (topology == null) {
+			board.setupMap(config.getMapFile());
+		} else {
+			TerrainType[] terrains = new TerrainType[topology.getHexCount()];
+			int[] tokens = new int[topology.getHexCount()];
+			topology.defaultLayout(terrains, tokens);
+			board.setupMap(topology, terrains, tokens);
+		}
+	}
+
+	/**
+	 * Plays the turn of the seat to move and, after the last seat, ends the
+	 * round. Returns false once the game is over: someone has 10 VP at the
+	 * end of a round, or the round cap is reached.
+	 */
+	public boolean playTurn() {
+		if (finished) return false;
+		runTurn(agents.get(currentSeat));
+		if (++currentSeat < agents.size()) return true;
+
+		currentSeat = 0;
+		if (listener != null) listener.onRoundEnd(currentRound, agents);
+		if (exporter != null) exporter.writeRound(currentRound, agents);
+		roundsPlayed = currentRound;
+		winner = checkWinCondition();
+		if (winner == null && currentRound < maxRounds) {
+			currentRound++;
+			return true;
 		}
+		finished = true;
+		if (listener != null) listener.onGameEnd(roundsPlayed, winner);
+		return false;
+	}
+
+	// plays the game on this layout, indexed by hex id, instead of the map's or a generated one
+	void setLayout(TerrainType[] terrains, int[] tokens) {
+		fixedTerrains = terrains;
+		fixedTokens = tokens;
+	}
+
+	// the first setup placements, in snake order, as {node, edge} with edge -1 for no road; the rest stay random
+	void setSetupPlacements(int[][] placements) {
+		setupPlacements = placements;
 	}
 
 	private void doSetupPlacement(Agent a, boolean grantResources) {
-		List<Node> available = board.getAvailableNodesForSetup(a);
-		if (!available.isEmpty()) {
-			Node chosen = available.get(rng.nextInt(available.size()));
-			chosen.owner = a;
-			chosen.building = BuildingType.SETTLEMENT;
-			a.addVictoryPoints(1);
-			logAction(0, a.getId(), "Setup: placed settlement at node " + chosen.getId());
-
-			// Second settlement grants one resource from each adjacent hex
-			if (grantResources) {
-				for (Hex hex : board.getHexes().values()) {
-					if (hex.terrain == TerrainType.DESERT) continue;
-					if (hex.getCorners().contains(chosen)) {
-						ResourceType res = terrainToResource(hex.terrain);
-						if (res != null) a.addResource(res, 1);
-					}
-				}
-			}
+		int[] forced = (placementsMade < setupPlacements.length) ? setupPlacements[placementsMade] : null;
+		placementsMade++;
+		if (forced == null && config.getOpeningBook() != null) {
+			// a book built for another map or player count can suggest a taken spot; then the placement stays random
+			int[] booked = OpeningBook.shared(Paths.get(config.getOpeningBook())).lookup(board);
+			if (booked != null && isOpenPlacement(booked)) forced = booked;
+		}
+		Node chosen;
+		if (forced != null) {
+			chosen = board.getNode(forced[0]);
+			if (!board.isSetupCandidate(chosen)) throw new IllegalArgumentException("Node " + forced[0] + " is not open for a settlement");
+		} else {
+			List<Node> available = board.getAvailableNodesForSetup(a);
+			if (available.isEmpty()) return;
+			chosen = available.get(rng.nextInt(available.size()));
+		}
+		board.placeSettlement(a, chosen);
 
-			// Place a road adjacent to the chosen settlement (random choice)
-			List<Edge> adjacent = new ArrayList<>();
-			for (Edge e : chosen.edges) {
-				if (e.owner == null) adjacent.add(e);
-			}
-			if (!adjacent.isEmpty()) {
-				Edge road = adjacent.get(rng.nextInt(adjacent.size()));
-				road.owner = a;
-				logAction(0, a.getId(), "Setup: placed road at edge " + road.getId());
+		// Second settlement grants one resource from each adjacent hex
+		if (grantResources) {
+			for (Hex hex : chosen.hexes) {
+				if (hex.resource != null) a.addResource(hex.resource, 1);
 			}
 		}
-	}
 
-	private ResourceType terrainToResource(TerrainType t) {
-		switch (t) {
-			case WOOD:  return ResourceType.WOOD;
-			case BRICK: return ResourceType.BRICK;
-			case SHEEP: return ResourceType.SHEEP;
-			case WHEAT: return ResourceType.WHEAT;
-			case ORE:   return ResourceType.ORE;
-			default:    return null;
+		// Place a road adjacent to the chosen settlement (random choice)
+		List<Edge> adjacent = new ArrayList<>();
+		for (Edge e : chosen.edges) {
+			if (e.owner == GameState.NO_SEAT) adjacent.add(e);
+		}
+		Edge road = null;
+		if (forced != null) {
+			road = (forced[1] >= 0) ? board.getEdge(forced[1]) : null;
+			if (road != null && !adjacent.contains(road)) throw new IllegalArgumentException("Edge " + forced[1] + " is not a free edge of node " + forced[0]);
+		} else if (!adjacent.isEmpty()) {
+			road = adjacent.get(rng.nextInt(adjacent.size()));
 		}
+		if (road != null) board.placeRoad(a, road);
+		if (listener != null) listener.onSetupPlacement(a.getSeat(), chosen.getId(), (road != null) ? road.getId() : -1);
+	}
+
+	private boolean isOpenPlacement(int[] placement) {
+		Node n = board.getNode(placement[0]);
+		if (!board.isSetupCandidate(n)) return false;
+		if (placement[1] < 0) return true;
+		Edge e = board.getEdge(placement[1]);
+		return n.edges.contains(e) && e.owner == GameState.NO_SEAT;
 	}
 
 	private void runTurn(Agent a) {
+		TurnEvent event = new TurnEvent();
+		event.begin();
+		a.beginTurn();
 		int roll = dice.roll();
+		if (listener != null) listener.onRoll(currentRound, a.getSeat(), roll);
 		if (roll == 7) {
-			logAction(currentRound, a.getId(), "Rolled " + roll + " -- no resources produced");
+			resolveSeven(a);
 		} else {
-			logAction(currentRound, a.getId(), "Rolled " + roll);
-			board.distributeResources(roll);
+			distributeResources(roll);
 		}
 
-		// agents with more than 7 cards attempts to build
-		if (a.checkHandLimit()) {
-			Action forced = a.chooseAction(board);
-			if (forced != null) {
-				forced.execute(board, a);
-				logAction(currentRound, a.getId(), "[hand limit] " + forced.describe());
-			}
-		} else {
-			Action action = a.chooseAction(board);
-			if (action != null) {
-				action.execute(board, a);
-				logAction(currentRound, a.getId(), action.describe());
+		// agents over the hand limit build what they can towards it, then take their turn as usual
+		int executed = 0;
+		if (a.checkHandLimit()) executed += execute(a.planHandLimitBuilds(board), a, true);
+		// trades do not use up the turn's action, so a plan of trades alone is followed by another plan
+		int trades = 0;
+		while (true) {
+			boolean handLimit = a.checkHandLimit();
+			List<Action> plan = decide(a);
+			int end = 0;
+			while (end < plan.size() && plan.get(end) instanceof TradeAction && trades < MAX_TRADES_PER_TURN) {
+				end++;
+				trades++;
 			}
+			boolean onlyTrades = end == plan.size();
+			// the turn's one build or play; a trade past the limit is dropped with whatever follows it
+			if (!onlyTrades && !(plan.get(end) instanceof TradeAction)) end++;
+			int done = execute(plan.subList(0, end), a, handLimit);
+			executed += done;
+			if (!onlyTrades || plan.isEmpty() || done < end) break;
+		}
+		if (metrics != null) metrics.recordTurn();
+		if (event.shouldCommit()) {
+			event.agentId = a.getId();
+			event.round = currentRound;
+			event.roll = roll;
+			event.actions = executed;
+			event.commit();
 		}
 	}
 
-	private boolean checkWinCondition() {
+	// every agent over the hand limit discards half (rounded down), then the roller moves the robber
+	private void resolveSeven(Agent roller) {
 		for (Agent a : agents) {
-			if (a.getVictoryPoints() >= 10) {
-				System.out.println("Player " + a.getId() + " wins with " + a.getVictoryPoints() + " VP!");
-				return true;
+			if (!a.checkHandLimit()) continue;
+			int discard = a.getHand().getTotalCards() / 2;
+			for (int i = 0; i < discard; i++) {
+				ResourceType r = a.chooseDiscard(board);
+				if (r == null || a.getHand().get(r) == 0) r = a.removeRandomResource(rng);
+				else a.getHand().remove(r, 1);
 			}
+			if (listener != null) listener.onDiscard(currentRound, a.getSeat(), discard);
+		}
+
+		Hex target = roller.chooseRobberHex(board);
+		if (target == null || target == board.getRobberHex()) return;
+		List<Agent> victims = board.getRobberVictims(roller, target);
+		Agent victim = victims.isEmpty() ? null : roller.chooseVictim(board, victims);
+		if (victim != null && !victims.contains(victim)) victim = null;
+		ResourceType stolen = board.rob(roller, target, victim);
+		if (listener != null) {
+			listener.onRobber(currentRound, roller.getSeat(), target.getId(), (stolen != null) ? victim.getSeat() : -1);
 		}
-		return false;
 	}
 
-	private void printRoundSummary() {
-		System.out.print("Round " + currentRound + " VP: ");
+	private void distributeResources(int roll) {
+		if (metrics == null) {
+			board.distributeResources(roll);
+		} else {
+			long start = System.nanoTime();
+			board.distributeResources(roll);
+			metrics.recordDistribute(System.nanoTime() - start);
+		}
+		if (listener == null) return;
 		for (Agent a : agents) {
-			System.out.print("[P" + a.getId() + "=" + a.getVictoryPoints() + "] ");
+			for (ResourceType r : ResourceType.values()) {
+				int amount = board.getProduction(a, roll, r);
+				if (amount > 0) listener.onProduction(currentRound, a.getSeat(), r, amount);
+			}
 		}
-		System.out.println();
 	}
 
-	private void logAction(int round, int playerId, String action) {
-		System.out.printf("[%d] / [%d]: %s%n", round, playerId, action);
+	private List<Action> decide(Agent a) {
+		DecisionEvent event = new DecisionEvent();
+		event.begin();
+		long start = System.nanoTime();
+		List<Action> plan = (decisionBudget > 0) ? a.planTurn(board, start + decisionBudget) : a.planTurn(board);
+		long nanos = System.nanoTime() - start;
+		// a late answer is discarded even if it is better, so overrunning never pays
+		boolean late = decisionBudget > 0 && nanos > decisionBudget;
+		decisionStats[a.getSeat()].record(nanos, late);
+		if (late) {
+			if (listener != null) listener.onDecisionTimeout(currentRound, a.getSeat(), nanos);
+			plan = Agent.asPlan(a.fallbackAction(board));
+		}
+		if (metrics != null) metrics.recordDecision(a, nanos);
+		if (event.shouldCommit()) {
+			event.agentId = a.getId();
+			event.agentType = a.getClass();
+			event.round = currentRound;
+			event.legalMoves = a.getLegalMoveCount();
+			event.commit();
+		}
+		return (plan != null) ? plan : Collections.<Action>emptyList();
+	}
+
+	/**
+	 * Executes the actions in order up to the first illegal or failed one and
+	 * reports them as one batch, to the listener and as one JFR event.
+	 * Returns how many succeeded.
+	 */
+	private int execute(List<Action> actions, Agent a, boolean overHandLimit) {
+		if (actions.isEmpty()) return 0;
+		ActionEvent event = new ActionEvent();
+		event.begin();
+		int succeeded = 0;
+		for (Action action : actions) {
+			if (!action.isLegal(board, a, rules) || !action.execute(board, a)) break;
+			succeeded++;
+		}
+		if (listener != null) listener.onActions(currentRound, a.getSeat(), actions, succeeded, overHandLimit);
+		if (event.shouldCommit()) {
+			event.agentId = a.getId();
+			event.round = currentRound;
+			event.actionType = actions.get(0).getClass();
+			event.actions = actions.size();
+			event.succeeded = succeeded;
+			event.commit();
+		}
+		return succeeded;
+	}
+
+	/** The position between two turns, in the compact binary form of GameSnapshot. */
+	public byte[] snapshot() {
+		return GameSnapshot.write(this);
+	}
+
+	/**
+	 * Continues from a snapshot of a game with the same config, so that the
+	 * next playTurn plays the turn that followed the snapshot.
+	 */
+	public void restore(byte[] snapshot) {
+		if (!board.isBuilt()) setupBoard();
+		GameSnapshot.read(this, snapshot);
+	}
+
+	/**
+	 * An independent copy of this game, with its own board, agents and random
+	 * streams, that continues exactly as this one would. It builds a new
+	 * board each time; Rollout reuses one for repeated forks.
+	 */
+	public CatanSimulator fork() {
+		CatanSimulator copy = new CatanSimulator(config);
+		copy.restore(snapshot());
+		return copy;
+	}
+
+	// restarts every random stream from one seed, as the constructor does, and reshuffles the undrawn
+	// development cards, so a fork takes a different future without seeing the real game's hidden cards
+	void reseed(long seed) {
+		Random master = new GameRandom(seed);
+		for (Random r : randomStreams()) {
+			if (r != null) r.setSeed(master.nextLong());
+		}
+		board.getDeck().shuffleRemaining(new GameRandom(master.nextLong()));
+	}
+
+	// the turn playTurn plays next, and picking up from there after a restore
+	int getCurrentRound() { return currentRound; }
+	int getCurrentSeat() { return currentSeat; }
+
+	void resume(int round, int seat) {
+		currentRound = round;
+		currentSeat = seat;
+		roundsPlayed = round - 1;
+		winner = null;
+		finished = false;
+	}
+
+	Board getBoard() { return board; }
+
+	// every random stream of the game in a fixed order: simulator, dice, board, then each agent's (null if none)
+	List<Random> randomStreams() {
+		List<Random> streams = new ArrayList<>();
+		streams.add(rng);
+		streams.add(dice.getRandom());
+		streams.add(board.getRandom());
+		for (Agent a : agents) streams.add(a.getRandom());
+		return streams;
+	}
+
+	public List<Agent> getAgents() { return agents; }
+	// decision latency and timeouts for a seat over the current game
+	public DecisionStats getDecisionStats(int seat) { return decisionStats[seat]; }
+
+	// winner seat (-1 at the round cap), rounds played, then each seat's VP
+	int[] getResult() {
+		int[] result = new int[2 + agents.size()];
+		result[0] = (winner != null) ? winner.getSeat() : -1;
+		result[1] = roundsPlayed;
+		for (int s = 0; s < agents.size(); s++) result[2 + s] = agents.get(s).getVictoryPoints();
+		return result;
+	}
+	public int getRoundsPlayed() { return roundsPlayed; }
+	// null while the game runs or when it hit the round cap
+	public Agent getWinner() { return winner; }
+
+	public MetricsSnapshot getMetricsSnapshot() {
+		return (metrics != null) ? metrics.snapshot() : null;
+	}
+
+	private Agent checkWinCondition() {
+		for (Agent a : agents) {
+			if (a.getVictoryPoints() >= 10) return a;
+		}
+		return null;
 	}
 }
@@ -0,0 +1,50 @@
+package catan;
+
+import java.util.List;
+
+/**
+ * Prints each action as "[round] / [player]: action", a VP summary after
+ * every round and the winner, as the simulator has always done.
+ */
+public class ConsoleListener implements GameListener {
+	public void onSetupPlacement(int seat, int node, int edge) {
+		logAction(0, seat, "Setup: placed settlement at node " + node);
+		if (edge >= 0) logAction(0, seat, "Setup: placed road at edge " + edge);
+	}
+
+	public void onRoll(int round, int seat, int roll) {
+		logAction(round, seat, "Rolled " + roll + (roll == 7 ? " -- robber" : ""));
+	}
+
+	public void onDiscard(int round, int seat, int cards) {
+		logAction(round, seat, "Discarded " + cards + " cards");
+	}
+
+	public void onRobber(int round, int seat, int hex, int victim) {
+		logAction(round, seat, "Moved robber to hex " + hex + (victim >= 0 ? ", stole a card from P" + victim : ""));
+	}
+
+	public void onAction(int round, int seat, Action action, boolean succeeded, boolean overHandLimit) {
+		logAction(round, seat, (succeeded ? "" : "[rejected] ") + (overHandLimit ? "[hand limit] " : "") + action.describe());
+	}
+
+	public void onDecisionTimeout(int round, int seat, long nanos) {
+		logAction(round, seat, String.format("Decision took %.1f ms, over budget -- fallback move played", nanos / 1e6));
+	}
+
+	public void onRoundEnd(int round, List<Agent> agents) {
+		System.out.print("Round " + round + " VP: ");
+		for (Agent a : agents) {
+			System.out.print("[P" + a.getId() + "=" + a.getVictoryPoints() + "] ");
+		}
+		System.out.println();
+	}
+
+	public void onGameEnd(int rounds, Agent winner) {
+		if (winner != null) System.out.println("Player " + winner.getId() + " wins with " + winner.getVictoryPoints() + " VP!");
+	}
+
+	private void logAction(int round, int playerId, String action) {
+		System.out.printf("[%d] / [%d]: %s%n", round, playerId, action);
+	}
+}
@@ -5,10 +5,12 @@ import java.util.Map;
 
 public class Cost {
 	private Map<ResourceType, Integer> required;
+	private int[] amounts;
 
 	public static final Cost SETTLEMENT;
 	public static final Cost ROAD;
 	public static final Cost CITY;
+	public static final Cost DEVELOPMENT_CARD;
 
 	static {
 		SETTLEMENT = new Cost();
@@ -27,9 +29,27 @@ public class Cost {
 		CITY.required = new HashMap<>();
 		CITY.required.put(ResourceType.ORE, 3);
 		CITY.required.put(ResourceType.WHEAT, 2);
+
+		DEVELOPMENT_CARD = new Cost();
+		DEVELOPMENT_CARD.required = new HashMap<>();
+		DEVELOPMENT_CARD.required.put(ResourceType.ORE, 1);
+		DEVELOPMENT_CARD.required.put(ResourceType.SHEEP, 1);
+		DEVELOPMENT_CARD.required.put(ResourceType.WHEAT, 1);
+
+		for (Cost c : new Cost[] { SETTLEMENT, ROAD, CITY, DEVELOPMENT_CARD }) {
+			c.amounts = new int[ResourceType.values().length];
+			for (Map.Entry<ResourceType, Integer> entry : c.required.entrySet()) {
+				c.amounts[entry.getKey().ordinal()] = entry.getValue();
+			}
+		}
 	}
 
 	public Map<ResourceType, Integer> getRequired() {
 		return required;
 	}
+
+	// required counts indexed by ResourceType.ordinal()
+	int[] amounts() {
+		return amounts;
+	}
 }
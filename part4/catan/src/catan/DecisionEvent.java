@@ -0,0 +1,32 @@
+package catan;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call to Agent.chooseAction.
+ */
+@Name("catan.Decision")
+@Label("Agent Decision")
+@Category("Catan")
+@Description("An agent choosing its next action")
+@Enabled(false)
+@StackTrace(false)
+final class DecisionEvent extends Event {
+	@Label("Agent")
+	int agentId;
+
+	@Label("Agent Type")
+	Class<?> agentType;
+
+	@Label("Round")
+	int round;
+
+	@Label("Legal Moves")
+	int legalMoves;
+}
@@ -0,0 +1,25 @@
+package catan;
+
+/**
+ * Decision latency for one seat over a game: how many decisions it made,
+ * their total and slowest time, and how many missed the decision budget and
+ * were replaced by the agent's fallback move.
+ */
+public class DecisionStats {
+	private long decisions;
+	private long totalNanos;
+	private long maxNanos;
+	private long timeouts;
+
+	void record(long nanos, boolean late) {
+		decisions++;
+		totalNanos += nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+		if (late) timeouts++;
+	}
+
+	public long getDecisions() { return decisions; }
+	public long getTimeouts() { return timeouts; }
+	public double getAverageMicros() { return decisions == 0 ? 0 : totalNanos / 1e3 / decisions; }
+	public double getMaxMicros() { return maxNanos / 1e3; }
+}
@@ -4,7 +4,35 @@ package catan;
  * Runs the Catan simulator and outputs the actions taken and the final scores to console.
  * 
  * To change the number of rounds: edit src/catan/config.txt (turns: 1-8192).
- * To change the board layout:     edit src/catan/map.txt.
+ * To change the board layout:     edit src/catan/map.txt, or add "map_file: other.txt" to config.txt.
+ * To play on a random layout:     add "random_map: true" to config.txt, and optionally
+ *   "map_pip_spread: 4" to cap the pip difference between resources.
+ *   java -cp bin catan.BoardGenerator [seed] prints a random layout in map.txt format.
+ * To change the number of agents: add "players: 6" (2 to 8, default 4) to config.txt.
+ *   "agents: random, random, random" sets the line-up seat by seat instead.
+ * To replay a game exactly:       add "seed: 42" to config.txt.
+ * To cap thinking time:           add "decision_budget_ms: 5" to config.txt; a decision that
+ *   takes longer is discarded and the agent's fallback move (a pass by default) is played.
+ *   Which decisions run late depends on timing, so a seed no longer replays the game exactly.
+ * To sweep parameters:            java -cp bin catan.ExperimentRunner sweep.txt (see ExperimentSpec).
+ * To play a long resumable batch: java -cp bin catan.BatchRunner config.txt 100000 batch.ckpt
+ * To play many random-agent games fast: java -cp bin catan.LockstepEngine config.txt 100000
+ * To rank the next setup placement: java -cp bin catan.SetupAnalyzer config.txt 1000 [node:edge ...]
+ * To build an opening book:      java -cp bin catan.OpeningBook config.txt 1000 book.bin, then play
+ *   it with "opening_book: book.bin"; setup placements in the book replace random ones.
+ * To play on a generated board:   add "board_shape: hexagon 3" (any radius) or
+ *   "board_shape: extension" (the 5-6 player board) to config.txt; its layout is random.
+ * To export per-round metrics:    add to config.txt
+ *   metrics_file: metrics.csv      (output path)
+ *   metrics_format: csv            (csv or binary)
+ *   metrics_compress: false        (gzip the output)
+ * To watch throughput over JMX:   add "jmx: true" to config.txt and attach
+ *   JConsole to the catan:type=SimulatorMetrics MBean.
+ * To watch games live:           add "spectator_port: 8787" (and "spectator_sample: 100" to watch
+ *   every 100th game of a batch), then curl -N http://localhost:8787/events.
+ * To record turns and decisions with Java Flight Recorder:
+ *   java -XX:StartFlightRecording=settings=default,settings=src/catan/catan.jfc,filename=catan.jfr \
+ *        -cp bin catan.Demonstrator
  *
  * Compile and run from the catan/ directory:
  *   javac -d bin src/catan/*.java
@@ -13,6 +41,7 @@ package catan;
 public class Demonstrator {
 	public static void main(String[] args) {
 		CatanSimulator sim = new CatanSimulator("src/catan/config.txt");
+		sim.addListener(new ConsoleListener());
 		sim.runSimulation();
 	}
 }
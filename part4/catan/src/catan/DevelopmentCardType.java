@@ -0,0 +1,18 @@
+package catan;
+
+public enum DevelopmentCardType {
+	KNIGHT(14),
+	VICTORY_POINT(5),
+	ROAD_BUILDING(2),
+	YEAR_OF_PLENTY(2),
+	MONOPOLY(2);
+
+	// copies of this card in the base-game deck
+	private final int count;
+
+	DevelopmentCardType(int count) {
+		this.count = count;
+	}
+
+	public int getCount() { return count; }
+}
@@ -0,0 +1,62 @@
+package catan;
+
+import java.util.Random;
+
+/**
+ * The development card deck, shuffled once up front so that drawing is an
+ * array read and an index increment.
+ */
+public class DevelopmentDeck {
+	// cards in a full deck
+	static final int SIZE;
+
+	static {
+		int size = 0;
+		for (DevelopmentCardType t : DevelopmentCardType.values()) size += t.getCount();
+		SIZE = size;
+	}
+
+	private final DevelopmentCardType[] cards;
+	private int next;
+
+	public DevelopmentDeck(Random rng) {
+		cards = new DevelopmentCardType[SIZE];
+		int i = 0;
+		for (DevelopmentCardType t : DevelopmentCardType.values()) {
+			for (int c = 0; c < t.getCount(); c++) cards[i++] = t;
+		}
+		shuffleRemaining(rng);
+	}
+
+	// a deck part way through a known card order
+	DevelopmentDeck(DevelopmentCardType[] cards, int next) {
+		this.cards = cards;
+		this.next = next;
+	}
+
+	DevelopmentCardType[] getCards() { return cards; }
+	int getNext() { return next; }
+
+	public boolean isEmpty() {
+		return next == cards.length;
+	}
+
+	public int remaining() {
+		return cards.length - next;
+	}
+
+	// a new order for the cards not yet drawn, e.g. so a reseeded fork does not know the real game's next cards
+	void shuffleRemaining(Random rng) {
+		for (int j = cards.length - 1; j > next; j--) {
+			int k = next + rng.nextInt(j - next + 1);
+			DevelopmentCardType tmp = cards[j];
+			cards[j] = cards[k];
+			cards[k] = tmp;
+		}
+	}
+
+	// returns null once the deck is exhausted
+	public DevelopmentCardType draw() {
+		return isEmpty() ? null : cards[next++];
+	}
+}
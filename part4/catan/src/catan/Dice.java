@@ -1,14 +1,21 @@
 package catan;
 
 import java.security.SecureRandom;
+import java.util.Random;
 
 public class Dice {
-	private SecureRandom rng;
+	private Random rng;
 
 	public Dice() {
-		rng = new SecureRandom();
+		this(new SecureRandom());
 	}
 
+	public Dice(Random rng) {
+		this.rng = rng;
+	}
+
+	Random getRandom() { return rng; }
+
 	public int roll() {
 		return rng.nextInt(6) + 1 + rng.nextInt(6) + 1;
 	}
@@ -0,0 +1,26 @@
+package catan;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call to Board.distributeResources.
+ */
+@Name("catan.DistributeResources")
+@Label("Distribute Resources")
+@Category("Catan")
+@Description("Resource production for a dice roll")
+@Enabled(false)
+@StackTrace(false)
+final class DistributeEvent extends Event {
+	@Label("Roll")
+	int roll;
+
+	@Label("Cards Produced")
+	int cards;
+}
@@ -2,7 +2,8 @@ package catan;
 
 public class Edge {
 	private int id;
-	Agent owner;
+	// seat of the owning player, or GameState.NO_SEAT
+	int owner;
 	Node a;
 	Node b;
 
@@ -10,11 +11,11 @@ public class Edge {
 		this.id = id;
 		this.a = a;
 		this.b = b;
-		this.owner = null;
+		this.owner = GameState.NO_SEAT;
 	}
 
 	public int getId() { return id; }
-	public Agent getOwner() { return owner; }
+	public int getOwner() { return owner; }
 	public Node getA() { return a; }
 	public Node getB() { return b; }
 }
@@ -0,0 +1,165 @@
+package catan;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs every cell of an ExperimentSpec and prints one CSV row per cell.
+ *
+ * A cell's stats are saved under its cache key in the cache directory once
+ * all its games finish, and are read back instead of replayed on later
+ * runs, so editing a spec only plays the cells that are new or changed.
+ * Games of all uncached cells share one thread pool.
+ *
+ * Usage: java -cp bin catan.ExperimentRunner sweep.txt
+ */
+public class ExperimentRunner {
+	private final ExperimentSpec spec;
+	private final Path cacheDir;
+
+	public ExperimentRunner(ExperimentSpec spec) {
+		this.spec = spec;
+		this.cacheDir = Paths.get(spec.getCacheDir());
+	}
+
+	public List<GameStats> run(PrintStream log) throws InterruptedException {
+		List<Map<String, String>> cells = spec.cells();
+		List<GameStats> results = new ArrayList<>();
+		List<List<Future<int[]>>> pending = new ArrayList<>();
+		ExecutorService pool = Executors.newFixedThreadPool(spec.getThreads());
+		try {
+			for (Map<String, String> cell : cells) {
+				if (spec.config(cell, 0).getDecisionBudgetNanos() > 0) {
+					log.println("warning: cell " + cell + " has a decision budget; its games depend on timing, so its cached result cannot be reproduced");
+				}
+				GameStats cached = readCache(spec.cacheKey(cell));
+				results.add(cached);
+				List<Future<int[]>> games = new ArrayList<>();
+				if (cached == null) {
+					for (int i = 0; i < spec.getGames(cell); i++) {
+						GameConfig config = spec.config(cell, i);
+						games.add(pool.submit(() -> playGame(config)));
+					}
+				}
+				pending.add(games);
+			}
+			for (int c = 0; c < cells.size(); c++) {
+				if (results.get(c) != null) {
+					log.println("cell " + (c + 1) + "/" + cells.size() + " cached " + cells.get(c));
+					continue;
+				}
+				GameStats stats = null;
+				for (Future<int[]> game : pending.get(c)) {
+					int[] result = game.get();
+					if (stats == null) stats = new GameStats(result.length - 2);
+					stats.add(result[0], result[1], Arrays.copyOfRange(result, 2, result.length));
+				}
+				writeCache(spec.cacheKey(cells.get(c)), stats);
+				results.set(c, stats);
+				log.println("cell " + (c + 1) + "/" + cells.size() + " played " + cells.get(c));
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A game failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return results;
+	}
+
+	// winner seat (-1 at the round cap), rounds played, then each seat's VP
+	static int[] playGame(GameConfig config) {
+		CatanSimulator sim = new CatanSimulator(config);
+		sim.runSimulation();
+		return sim.getResult();
+	}
+
+	private GameStats readCache(String key) {
+		Path file = cacheDir.resolve(key);
+		if (!Files.exists(file)) return null;
+		try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return GameStats.read(in);
+		} catch (IOException e) {
+			// an unreadable entry is played again and overwritten
+			return null;
+		}
+	}
+
+	// written to a temporary file and moved into place, so a crash never leaves a partial entry
+	private void writeCache(String key, GameStats stats) {
+		try {
+			Files.createDirectories(cacheDir);
+			Path tmp = Files.createTempFile(cacheDir, key, ".tmp");
+			try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				stats.write(out);
+			}
+			Files.move(tmp, cacheDir.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write cache entry: " + key, e);
+		}
+	}
+
+	public void writeCsv(List<GameStats> results, PrintStream out) {
+		List<String> keys = spec.getKeys();
+		// a swept game count shows in the games column
+		keys.remove("games");
+		int seats = 0;
+		for (GameStats s : results) seats = Math.max(seats, s.getSeats());
+		StringBuilder header = new StringBuilder();
+		for (String key : keys) header.append(key).append(',');
+		header.append("games,unfinished,avg_rounds");
+		for (int s = 0; s < seats; s++) header.append(",win_rate_p").append(s);
+		for (int s = 0; s < seats; s++) header.append(",avg_vp_p").append(s);
+		out.println(header);
+
+		List<Map<String, String>> cells = spec.cells();
+		for (int c = 0; c < cells.size(); c++) {
+			GameStats stats = results.get(c);
+			StringBuilder row = new StringBuilder();
+			for (String key : keys) row.append(cells.get(c).get(key)).append(',');
+			row.append(stats.getGames()).append(',').append(stats.getUnfinished())
+					.append(',').append(String.format("%.2f", stats.getAverageRounds()));
+			for (int s = 0; s < seats; s++) {
+				row.append(',');
+				if (s < stats.getSeats()) row.append(String.format("%.4f", stats.getWinRate(s)));
+			}
+			for (int s = 0; s < seats; s++) {
+				row.append(',');
+				if (s < stats.getSeats()) row.append(String.format("%.3f", stats.getAverageVp(s)));
+			}
+			out.println(row);
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.err.println("Usage: java -cp bin catan.ExperimentRunner <spec file>");
+			System.exit(2);
+		}
+		ExperimentSpec spec = ExperimentSpec.load(args[0]);
+		ExperimentRunner runner = new ExperimentRunner(spec);
+		List<GameStats> results = runner.run(System.err);
+		if (spec.getOutput() == null) {
+			runner.writeCsv(results, System.out);
+		} else {
+			try (PrintStream out = new PrintStream(spec.getOutput(), StandardCharsets.UTF_8)) {
+				runner.writeCsv(results, out);
+			}
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package catan;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parameter sweep read from a spec file. Lines are "key: value", or
+ * "key: value | value | ..." to sweep over several values; every combination
+ * of the swept values is one cell. Keys are config.txt keys (turns, players,
+ * agents, board_shape, map_file, random_map, ...) and these two:
+ *
+ *   games: 100        games per cell
+ *   seed: 1           game i of a cell is seeded from (seed, i)
+ *
+ * The following apply to the whole sweep and take one value:
+ *
+ *   threads: 8        games run in parallel (default: one per core)
+ *   cache_dir: .cache where finished cells are kept
+ *   output: out.csv   results table (default: standard output)
+ *
+ * For example, "players: 3 | 4" with "map_file: a.txt | b.txt" gives 4 cells.
+ * An unknown key, or a value its key does not accept, is an error.
+ */
+public class ExperimentSpec {
+	// bump when a change to the simulator makes cached results stale
+	static final int CACHE_VERSION = 3;
+
+	private static final int DEFAULT_GAMES = 100;
+	private static final long DEFAULT_SEED = 1;
+
+	private final Map<String, List<String>> axes = new LinkedHashMap<>();
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private String cacheDir = ".catan-cache";
+	private String output;
+
+	public static ExperimentSpec load(String path) throws IOException {
+		ExperimentSpec spec = new ExperimentSpec();
+		try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				int colon = line.indexOf(':');
+				if (colon < 0) continue;
+				spec.set(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+			}
+		}
+		return spec;
+	}
+
+	public void set(String key, String value) {
+		switch (key) {
+			case "threads":
+				threads = Math.max(1, Integer.parseInt(value));
+				break;
+			case "cache_dir":
+				cacheDir = value;
+				break;
+			case "output":
+				output = value.isEmpty() ? null : value;
+				break;
+			default:
+				List<String> values = new ArrayList<>();
+				for (String v : value.split("\\|")) {
+					v = v.trim();
+					// parsed now, so a typo fails before any game is played
+					if (key.equals("games")) {
+						if (Integer.parseInt(v) < 1) throw new IllegalArgumentException("games must be positive: " + v);
+					} else if (key.equals("seed")) {
+						Long.parseLong(v);
+					} else if (!new GameConfig().set(key, v)) {
+						throw new IllegalArgumentException("Unknown key: " + key);
+					}
+					values.add(v);
+				}
+				axes.put(key, values);
+				break;
+		}
+	}
+
+	public int getGames(Map<String, String> cell) {
+		return cell.containsKey("games") ? Integer.parseInt(cell.get("games")) : DEFAULT_GAMES;
+	}
+
+	public long getSeed(Map<String, String> cell) {
+		return cell.containsKey("seed") ? Long.parseLong(cell.get("seed")) : DEFAULT_SEED;
+	}
+
+	public int getThreads() { return threads; }
+	public String getCacheDir() { return cacheDir; }
+	public String getOutput() { return output; }
+	public List<String> getKeys() { return new ArrayList<>(axes.keySet()); }
+
+	/** Every combination of swept values, as key to value maps in spec order; the last key varies fastest. */
+	public List<Map<String, String>> cells() {
+		List<Map<String, String>> cells = new ArrayList<>();
+		cells.add(new LinkedHashMap<>());
+		for (Map.Entry<String, List<String>> axis : axes.entrySet()) {
+			List<Map<String, String>> next = new ArrayList<>();
+			for (Map<String, String> cell : cells) {
+				for (String value : axis.getValue()) {
+					Map<String, String> extended = new LinkedHashMap<>(cell);
+					extended.put(axis.getKey(), value);
+					next.add(extended);
+				}
+			}
+			cells = next;
+		}
+		return cells;
+	}
+
+	/** The config for game index of a cell. */
+	public GameConfig config(Map<String, String> cell, int index) {
+		GameConfig config = new GameConfig();
+		for (Map.Entry<String, String> e : cell.entrySet()) {
+			if (!isSweepKey(e.getKey())) config.set(e.getKey(), e.getValue());
+		}
+		config.set("seed", Long.toString(gameSeed(cell, index)));
+		return config;
+	}
+
+	// the same game index gets the same seed in every cell with the same seed, so cells are compared on common dice;
+	// the seed is mixed before the index is added, so nearby seeds do not share games
+	long gameSeed(Map<String, String> cell, int index) {
+		return GameRandom.mix(GameRandom.mix(getSeed(cell)) + index);
+	}
+
+	private static boolean isSweepKey(String key) {
+		return key.equals("games") || key.equals("seed");
+	}
+
+	/**
+	 * SHA-256 over everything that decides a cell's results: the cache version,
+	 * the cell's games, seed and settings, and the contents of the files they
+	 * name: the map file for cells not on a generated board, and the opening
+	 * book.
+	 */
+	public String cacheKey(Map<String, String> cell) {
+		try {
+			MessageDigest sha = MessageDigest.getInstance("SHA-256");
+			StringBuilder sb = new StringBuilder();
+			sb.append("version=").append(CACHE_VERSION).append('\n');
+			sb.append("games=").append(getGames(cell)).append('\n');
+			sb.append("seed=").append(getSeed(cell)).append('\n');
+			for (Map.Entry<String, String> e : cell.entrySet()) {
+				if (!isSweepKey(e.getKey())) sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+			}
+			sha.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+			GameConfig config = config(cell, 0);
+			if (config.createTopology() == null) hashFile(sha, config.getMapFile());
+			if (config.getOpeningBook() != null) hashFile(sha, config.getOpeningBook());
+			StringBuilder hex = new StringBuilder();
+			for (byte b : sha.digest()) hex.append(String.format("%02x", b));
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	private static void hashFile(MessageDigest sha, String path) {
+		try {
+			sha.update(Files.readAllBytes(Paths.get(path)));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read " + path, e);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package catan;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+/**
+ * Simulator settings read from config.txt. Each line is "key: value"; lines
+ * starting with # are ignored, as are keys the simulator does not know about.
+ */
+public class GameConfig {
+	private int turns = 100;
+	private int players = 4;
+	private String metricsFile;
+	private MetricsExporter.Format metricsFormat = MetricsExporter.Format.CSV;
+	private boolean metricsCompressed;
+	private boolean jmxEnabled;
+	private boolean randomMap;
+	private int mapPipSpread = -1;
+	private String boardShape = "map";
+	private String mapFile = Board.MAP_FILE;
+	private String[] agentTypes;
+	private long seed;
+	private boolean seeded;
+	// 0 leaves decisions unbounded; with a budget, late decisions depend on timing and seeded games stop being reproducible
+	private long decisionBudgetNanos;
+	private String openingBook;
+	// 0 for no spectator server
+	private int spectatorPort;
+	private int spectatorSample = 1;
+
+	public static GameConfig load(String configPath) {
+		GameConfig config = new GameConfig();
+		try (BufferedReader br = new BufferedReader(new FileReader(configPath))) {
+			config.read(br);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Warning: could not read config (" + e.getMessage() + "); using defaults.");
+		}
+		return config;
+	}
+
+	// config text already in memory, e.g. read once for a batch of games
+	public static GameConfig parse(String text) {
+		GameConfig config = new GameConfig();
+		try {
+			config.read(new BufferedReader(new StringReader(text)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return config;
+	}
+
+	private void read(BufferedReader br) throws IOException {
+		String line;
+		while ((line = br.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+			int colon = line.indexOf(':');
+			if (colon < 0) continue;
+			set(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+		}
+	}
+
+	// false for a key the simulator does not know about
+	public boolean set(String key, String value) {
+		switch (key) {
+			case "turns":
+				setTurns(Integer.parseInt(value));
+				break;
+			case "players":
+				setPlayers(Integer.parseInt(value));
+				break;
+			case "metrics_file":
+				metricsFile = value.isEmpty() ? null : value;
+				break;
+			case "metrics_format":
+				metricsFormat = MetricsExporter.Format.valueOf(value.toUpperCase());
+				break;
+			case "metrics_compress":
+				metricsCompressed = Boolean.parseBoolean(value);
+				break;
+			case "jmx":
+				jmxEnabled = Boolean.parseBoolean(value);
+				break;
+			case "random_map":
+				randomMap = Boolean.parseBoolean(value);
+				break;
+			case "map_pip_spread":
+				mapPipSpread = Integer.parseInt(value);
+				break;
+			case "board_shape":
+				boardShape = value;
+				break;
+			case "map_file":
+				mapFile = value.isEmpty() ? Board.MAP_FILE : value;
+				break;
+			case "agents":
+				agentTypes = value.split("\\s*,\\s*");
+				setPlayers(agentTypes.length);
+				break;
+			case "seed":
+				seed = Long.parseLong(value);
+				seeded = true;
+				break;
+			case "decision_budget_ms":
+				decisionBudgetNanos = Math.max(0, (long) (Double.parseDouble(value) * 1e6));
+				break;
+			case "spectator_port":
+				spectatorPort = Integer.parseInt(value);
+				break;
+			case "spectator_sample":
+				spectatorSample = Math.max(1, Integer.parseInt(value));
+				break;
+			case "opening_book":
+				openingBook = value.isEmpty() ? null : value;
+				break;
+			default:
+				return false;
+		}
+		return true;
+	}
+
+	public int getTurns() { return turns; }
+	public int getPlayers() { return players; }
+	public String getMetricsFile() { return metricsFile; }
+	public MetricsExporter.Format getMetricsFormat() { return metricsFormat; }
+	public boolean isMetricsCompressed() { return metricsCompressed; }
+	public boolean isJmxEnabled() { return jmxEnabled; }
+	public boolean isRandomMap() { return randomMap; }
+	public int getMapPipSpread() { return mapPipSpread; }
+	public String getBoardShape() { return boardShape; }
+	public String getMapFile() { return mapFile; }
+	public boolean isSeeded() { return seeded; }
+	public long getSeed() { return seed; }
+	public long getDecisionBudgetNanos() { return decisionBudgetNanos; }
+	public String getOpeningBook() { return openingBook; }
+	public int getSpectatorPort() { return spectatorPort; }
+	public int getSpectatorSample() { return spectatorSample; }
+
+	// agent type for a seat; seats beyond the "agents" list are random agents
+	public String getAgentType(int seat) {
+		return (agentTypes != null && seat < agentTypes.length) ? agentTypes[seat] : "random";
+	}
+
+	// null when the board comes from map.txt or map_file
+	public BoardTopology createTopology() {
+		if (boardShape.equals("extension")) return BoardTopology.extension();
+		if (boardShape.startsWith("hexagon")) {
+			return BoardTopology.hexagon(Integer.parseInt(boardShape.substring("hexagon".length()).trim()));
+		}
+		return null;
+	}
+
+	public void setTurns(int turns) {
+		this.turns = Math.max(1, Math.min(turns, 8192));
+	}
+
+	public void setPlayers(int players) {
+		this.players = Math.max(GameState.MIN_SEATS, Math.min(players, GameState.MAX_SEATS));
+	}
+}
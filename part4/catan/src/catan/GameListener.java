@@ -0,0 +1,111 @@
+package catan;
+
+import java.util.List;
+
+/**
+ * Callbacks from CatanSimulator as a game is played, for logging,
+ * statistics, replays or a UI. Every method has an empty default, so a
+ * listener only overrides what it needs.
+ *
+ * Arguments are primitives or objects the simulator already holds, so
+ * dispatching allocates nothing. With no listener registered the simulator
+ * skips each call behind a null check and builds no arguments.
+ */
+public interface GameListener {
+	/** The board is laid out and the players seated; setup placements follow. */
+	default void onGameStart(Board board) {}
+
+	/** A setup settlement at node, and its road at edge (-1 when there was no free edge). */
+	default void onSetupPlacement(int seat, int node, int edge) {}
+
+	default void onRoll(int round, int seat, int roll) {}
+
+	/** Cards seat received from a roll, one call per resource it received any of. */
+	default void onProduction(int round, int seat, ResourceType resource, int amount) {}
+
+	default void onDiscard(int round, int seat, int cards) {}
+
+	/** The robber moved to hex; victim is -1 when nobody was robbed or the victim had no cards. */
+	default void onRobber(int round, int seat, int hex, int victim) {}
+
+	/** overHandLimit is whether seat held more than 7 cards when it planned or chose the action. */
+	default void onAction(int round, int seat, Action action, boolean succeeded, boolean overHandLimit) {}
+
+	/**
+	 * One plan executed as a batch: the first succeeded actions were played,
+	 * the next one, if any, was illegal and the rest were dropped. By default
+	 * each action is passed to onAction, the illegal one as not succeeded.
+	 */
+	default void onActions(int round, int seat, List<Action> actions, int succeeded, boolean overHandLimit) {
+		for (int i = 0; i < succeeded; i++) onAction(round, seat, actions.get(i), true, overHandLimit);
+		if (succeeded < actions.size()) onAction(round, seat, actions.get(succeeded), false, overHandLimit);
+	}
+
+	/** seat's decision took nanos, past the decision budget, so its fallback move was played instead. */
+	default void onDecisionTimeout(int round, int seat, long nanos) {}
+
+	default void onRoundEnd(int round, List<Agent> agents) {}
+
+	/** winner is null when the round limit was reached first. */
+	default void onGameEnd(int rounds, Agent winner) {}
+
+	/** A listener that passes every callback to first and then to second. */
+	static GameListener combine(GameListener first, GameListener second) {
+		return new GameListener() {
+			public void onGameStart(Board board) {
+				first.onGameStart(board);
+				second.onGameStart(board);
+			}
+
+			public void onSetupPlacement(int seat, int node, int edge) {
+				first.onSetupPlacement(seat, node, edge);
+				second.onSetupPlacement(seat, node, edge);
+			}
+
+			public void onRoll(int round, int seat, int roll) {
+				first.onRoll(round, seat, roll);
+				second.onRoll(round, seat, roll);
+			}
+
+			public void onProduction(int round, int seat, ResourceType resource, int amount) {
+				first.onProduction(round, seat, resource, amount);
+				second.onProduction(round, seat, resource, amount);
+			}
+
+			public void onDiscard(int round, int seat, int cards) {
+				first.onDiscard(round, seat, cards);
+				second.onDiscard(round, seat, cards);
+			}
+
+			public void onRobber(int round, int seat, int hex, int victim) {
+				first.onRobber(round, seat, hex, victim);
+				second.onRobber(round, seat, hex, victim);
+			}
+
+			public void onAction(int round, int seat, Action action, boolean succeeded, boolean overHandLimit) {
+				first.onAction(round, seat, action, succeeded, overHandLimit);
+				second.onAction(round, seat, action, succeeded, overHandLimit);
+			}
+
+			public void onActions(int round, int seat, List<Action> actions, int succeeded, boolean overHandLimit) {
+				first.onActions(round, seat, actions, succeeded, overHandLimit);
+				second.onActions(round, seat, actions, succeeded, overHandLimit);
+			}
+
+			public void onDecisionTimeout(int round, int seat, long nanos) {
+				first.onDecisionTimeout(round, seat, nanos);
+				second.onDecisionTimeout(round, seat, nanos);
+			}
+
+			public void onRoundEnd(int round, List<Agent> agents) {
+				first.onRoundEnd(round, agents);
+				second.onRoundEnd(round, agents);
+			}
+
+			public void onGameEnd(int rounds, Agent winner) {
+				first.onGameEnd(rounds, winner);
+				second.onGameEnd(rounds, winner);
+			}
+		};
+	}
+}
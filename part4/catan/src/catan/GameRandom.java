@@ -0,0 +1,49 @@
+package catan;
+
+import java.util.Random;
+
+/**
+ * A seedable xorshift64* generator whose whole state is one long, so a game's
+ * random streams can be reproduced from a seed and saved or restored
+ * mid-stream with getState/setState. Not thread-safe; each game and each
+ * agent gets its own.
+ */
+public class GameRandom extends Random {
+	private static final long serialVersionUID = 1L;
+
+	private long state;
+
+	public GameRandom(long seed) {
+		super(seed);
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		// called from Random's constructor, before any field initialisers run
+		state = mix(seed);
+		if (state == 0) state = 0x9E3779B97F4A7C15L;
+	}
+
+	@Override
+	protected int next(int bits) {
+		state ^= state >>> 12;
+		state ^= state << 25;
+		state ^= state >>> 27;
+		return (int) ((state * 0x2545F4914F6CDD1DL) >>> (64 - bits));
+	}
+
+	public long getState() { return state; }
+
+	public void setState(long state) {
+		if (state == 0) throw new IllegalArgumentException("xorshift state must be non-zero");
+		this.state = state;
+	}
+
+	/** splitmix64 finaliser; spreads nearby seeds (0, 1, 2...) into unrelated states. */
+	public static long mix(long z) {
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,177 @@
+package catan;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A game position between two turns in a compact binary form: the layout
+ * and robber, a byte per node and edge for the pieces on it, each seat's
+ * cards and counters, the award holders, the development deck and the state
+ * of every random stream. A four-player game on map.txt takes under 500 bytes,
+ * and writing or restoring one takes microseconds.
+ *
+ * Only the position is stored. On restore the pieces are placed through
+ * Board.placePieces, which rebuilds production tables, road candidates
+ * and longest-road components, and then the stored counters overwrite
+ * whatever the replay computed. Snapshots start with a magic number and
+ * version and are rejected by a simulator whose board or seat count differs.
+ */
+final class GameSnapshot {
+	private static final int MAGIC = 0x43415453; // "CATS"
+	private static final int VERSION = 1;
+
+	private static final int RESOURCES = ResourceType.values().length;
+	private static final int CARDS = DevelopmentCardType.values().length;
+
+	private GameSnapshot() {
+	}
+
+	static byte[] write(CatanSimulator sim) {
+		Board board = sim.getBoard();
+		GameState state = board.getState();
+		List<Random> streams = sim.randomStreams();
+		DevelopmentCardType[] deck = board.getDeck().getCards();
+		int hexes = board.getHexes().size();
+		int nodes = board.getNodes().size();
+		int edges = board.getEdges().size();
+		int seats = state.seats;
+
+		ByteBuffer buf = ByteBuffer.allocate(18 + 8 * streams.size() + 2 * hexes + 2 + nodes + edges
+				+ seats * (4 * RESOURCES + 8 + 4 + RESOURCES + 2 * CARDS + 3) + 2 + 2 + deck.length);
+		buf.putInt(MAGIC).putShort((short) VERSION);
+		buf.putShort((short) hexes).putShort((short) nodes).putShort((short) edges).put((byte) seats);
+		buf.putShort((short) sim.getCurrentRound()).put((byte) sim.getCurrentSeat()).put((byte) state.turn);
+
+		buf.put((byte) streams.size());
+		// 0 marks a stream whose state cannot be saved; xorshift states are never 0
+		for (Random r : streams) buf.putLong((r instanceof GameRandom) ? ((GameRandom) r).getState() : 0);
+
+		for (int h = 0; h < hexes; h++) {
+			Hex hex = board.getHexes().get(h);
+			buf.put((byte) hex.terrain.ordinal()).put((byte) hex.numberToken);
+		}
+		Hex robber = board.getRobberHex();
+		buf.putShort((short) ((robber != null) ? robber.getId() : -1));
+
+		for (int n = 0; n < nodes; n++) {
+			Node node = board.getNode(n);
+			int code = 0;
+			if (node.owner != GameState.NO_SEAT) code = 1 + 2 * node.owner + ((node.building == BuildingType.CITY) ? 1 : 0);
+			buf.put((byte) code);
+		}
+		for (int e = 0; e < edges; e++) buf.put((byte) (board.getEdge(e).owner + 1));
+
+		for (int s = 0; s < seats; s++) {
+			for (int r = 0; r < RESOURCES; r++) buf.putInt(state.hands[s][r]);
+			buf.putShort((short) state.victoryPoints[s]);
+			buf.putShort((short) state.settlements[s]);
+			buf.putShort((short) state.cities[s]);
+			buf.putShort((short) state.roads[s]);
+			buf.putInt(state.legalMoves[s]);
+			for (int r = 0; r < RESOURCES; r++) buf.put((byte) state.tradeRates[s][r]);
+			for (int c = 0; c < CARDS; c++) buf.put((byte) state.devCards[s][c]);
+			for (int c = 0; c < CARDS; c++) buf.put((byte) state.newDevCards[s][c]);
+			buf.put((byte) (state.playedDevCard[s] ? 1 : 0));
+			buf.putShort((short) state.knightsPlayed[s]);
+		}
+		Agent longestRoad = board.getLongestRoadHolder();
+		Agent largestArmy = board.getLargestArmyHolder();
+		buf.put((byte) ((longestRoad != null) ? longestRoad.getSeat() : GameState.NO_SEAT));
+		buf.put((byte) ((largestArmy != null) ? largestArmy.getSeat() : GameState.NO_SEAT));
+
+		buf.put((byte) deck.length).put((byte) board.getDeck().getNext());
+		for (DevelopmentCardType card : deck) buf.put((byte) card.ordinal());
+		return buf.array();
+	}
+
+	// the simulator's board must be built; its pieces, players and random streams are replaced
+	static void read(CatanSimulator sim, byte[] data) {
+		try {
+			readChecked(sim, ByteBuffer.wrap(data));
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated snapshot", e);
+		}
+	}
+
+	private static void readChecked(CatanSimulator sim, ByteBuffer buf) {
+		if (buf.getInt() != MAGIC) throw new IllegalArgumentException("Not a game snapshot");
+		int version = buf.getShort();
+		if (version != VERSION) throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+
+		Board board = sim.getBoard();
+		List<Agent> agents = sim.getAgents();
+		int hexes = buf.getShort();
+		int nodes = buf.getShort();
+		int edges = buf.getShort();
+		int seats = buf.get();
+		if (hexes != board.getHexes().size() || nodes != board.getNodes().size() || edges != board.getEdges().size()) {
+			throw new IllegalArgumentException("Snapshot is for a board of " + hexes + " hexes, " + nodes + " nodes and " + edges + " edges");
+		}
+		if (seats != agents.size()) throw new IllegalArgumentException("Snapshot is for " + seats + " players, not " + agents.size());
+		int round = buf.getShort();
+		int seat = buf.get();
+		int turn = buf.get();
+
+		List<Random> streams = sim.randomStreams();
+		if (buf.get() != streams.size()) throw new IllegalArgumentException("Snapshot has a different number of random streams");
+		long[] randoms = new long[streams.size()];
+		for (int i = 0; i < randoms.length; i++) randoms[i] = buf.getLong();
+
+		TerrainType[] terrains = new TerrainType[hexes];
+		int[] tokens = new int[hexes];
+		boolean sameLayout = true;
+		for (int h = 0; h < hexes; h++) {
+			terrains[h] = TerrainType.values()[buf.get()];
+			tokens[h] = buf.get();
+			Hex hex = board.getHexes().get(h);
+			sameLayout &= hex.terrain == terrains[h] && hex.numberToken == tokens[h];
+		}
+		int robber = buf.getShort();
+		Hex robberHex = (robber >= 0) ? board.getHexes().get(robber) : null;
+		board.clearPieces();
+		// rollouts restore the same game over and over, so keep the layout and its symmetry tables when they match
+		if (!sameLayout || robberHex == null) board.applyLayout(terrains, tokens);
+		board.setPlayers(agents);
+		// before any pieces, so production is built with the robber already in place
+		if (robberHex != board.getRobberHex()) board.moveRobber(robberHex);
+
+		int[] nodeCodes = new int[nodes];
+		for (int n = 0; n < nodes; n++) nodeCodes[n] = buf.get();
+		int[] edgeOwners = new int[edges];
+		for (int e = 0; e < edges; e++) edgeOwners[e] = buf.get() - 1;
+		board.placePieces(nodeCodes, edgeOwners);
+
+		GameState state = board.getState();
+		for (int s = 0; s < seats; s++) {
+			for (int r = 0; r < RESOURCES; r++) state.hands[s][r] = buf.getInt();
+			state.victoryPoints[s] = buf.getShort();
+			state.settlements[s] = buf.getShort();
+			state.cities[s] = buf.getShort();
+			state.roads[s] = buf.getShort();
+			state.legalMoves[s] = buf.getInt();
+			for (int r = 0; r < RESOURCES; r++) state.tradeRates[s][r] = buf.get();
+			for (int c = 0; c < CARDS; c++) state.devCards[s][c] = buf.get();
+			for (int c = 0; c < CARDS; c++) state.newDevCards[s][c] = buf.get();
+			state.playedDevCard[s] = buf.get() != 0;
+			state.knightsPlayed[s] = buf.getShort();
+		}
+		int longestRoad = buf.get();
+		int largestArmy = buf.get();
+		board.setAwardHolders(longestRoad, largestArmy);
+
+		DevelopmentCardType[] deck = new DevelopmentCardType[buf.get()];
+		int next = buf.get();
+		for (int i = 0; i < deck.length; i++) deck[i] = DevelopmentCardType.values()[buf.get()];
+		board.setDeck(new DevelopmentDeck(deck, next));
+
+		for (int i = 0; i < randoms.length; i++) {
+			Random r = streams.get(i);
+			if (randoms[i] != 0 && r instanceof GameRandom) ((GameRandom) r).setState(randoms[i]);
+		}
+		state.turn = turn;
+		board.rehash();
+		sim.resume(round, seat);
+	}
+}
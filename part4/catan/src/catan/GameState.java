@@ -0,0 +1,79 @@
+package catan;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Per-player game state kept in arrays indexed by seat (0 to seats - 1), so
+ * work done for every player each turn is a loop over seats rather than a
+ * walk over agent objects. Agents and their ResourceHands read and write
+ * their seat's slots; Node and Edge owners are seat numbers.
+ */
+class GameState {
+	static final int MIN_SEATS = 2;
+	static final int MAX_SEATS = 8;
+	static final int NO_SEAT = -1;
+
+	private static final int RESOURCES = ResourceType.values().length;
+	private static final int CARDS = DevelopmentCardType.values().length;
+
+	final int seats;
+	// cards per resource, indexed [seat][ResourceType.ordinal()]
+	final int[][] hands;
+	final int[] victoryPoints;
+	final int[] settlements;
+	final int[] cities;
+	final int[] roads;
+	final int[] legalMoves;
+	// cards given per card received in a trade, indexed [seat][ResourceType.ordinal()]
+	final int[][] tradeRates;
+	// development cards indexed [seat][DevelopmentCardType.ordinal()]; cards bought this turn are not playable yet
+	final int[][] devCards;
+	final int[][] newDevCards;
+	final boolean[] playedDevCard;
+	final int[] knightsPlayed;
+	// cards each seat receives per roll, indexed [seat][roll][ResourceType.ordinal()], leaving out the robber's hex
+	final int[][][] production;
+	// unowned edges each seat may build a road on
+	final BitSet[] roadCandidates;
+	// nodes each seat has a road touching
+	final BitSet[] roadNodes;
+	// seat whose turn it is, or NO_SEAT before the first turn
+	int turn = NO_SEAT;
+	// Zobrist hash of the position, kept up to date by every change that feeds it
+	long hash;
+
+	GameState(int seats) {
+		this.seats = seats;
+		hands = new int[seats][RESOURCES];
+		victoryPoints = new int[seats];
+		settlements = new int[seats];
+		cities = new int[seats];
+		roads = new int[seats];
+		legalMoves = new int[seats];
+		tradeRates = new int[seats][RESOURCES];
+		for (int[] rates : tradeRates) Arrays.fill(rates, Trading.BANK_RATE);
+		devCards = new int[seats][CARDS];
+		newDevCards = new int[seats][CARDS];
+		playedDevCard = new boolean[seats];
+		knightsPlayed = new int[seats];
+		production = new int[seats][13][RESOURCES];
+		roadCandidates = new BitSet[seats];
+		roadNodes = new BitSet[seats];
+		for (int s = 0; s < seats; s++) {
+			roadCandidates[s] = new BitSet();
+			roadNodes[s] = new BitSet();
+		}
+	}
+
+	void addCards(int seat, int resource, int amount) {
+		int before = hands[seat][resource];
+		hands[seat][resource] = before + amount;
+		hash ^= Zobrist.hand(seat, resource, before) ^ Zobrist.hand(seat, resource, before + amount);
+	}
+
+	void setTurn(int seat) {
+		hash ^= Zobrist.turn(turn) ^ Zobrist.turn(seat);
+		turn = seat;
+	}
+}
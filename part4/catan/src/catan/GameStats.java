@@ -0,0 +1,135 @@
+package catan;
+
+import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Totals over a batch of games: games played, games that hit the round cap,
+ * rounds played, and wins and final VP per seat. Stats from separate batches
+ * merge by addition, and are saved as "key: value" lines or in binary.
+ */
+public class GameStats {
+	private final int seats;
+	private long games;
+	private long unfinished;
+	private long rounds;
+	private final long[] wins;
+	private final long[] vp;
+
+	public GameStats(int seats) {
+		this.seats = seats;
+		wins = new long[seats];
+		vp = new long[seats];
+	}
+
+	// winner is -1 when the game hit the round cap; vp holds each seat's final VP
+	public void add(int winner, int roundsPlayed, int[] finalVp) {
+		games++;
+		rounds += roundsPlayed;
+		if (winner < 0) unfinished++;
+		else wins[winner]++;
+		for (int s = 0; s < seats; s++) vp[s] += finalVp[s];
+	}
+
+	public void merge(GameStats other) {
+		if (other.seats != seats) throw new IllegalArgumentException("Cannot merge stats for " + other.seats + " seats into " + seats);
+		games += other.games;
+		unfinished += other.unfinished;
+		rounds += other.rounds;
+		for (int s = 0; s < seats; s++) {
+			wins[s] += other.wins[s];
+			vp[s] += other.vp[s];
+		}
+	}
+
+	public int getSeats() { return seats; }
+	public long getGames() { return games; }
+	public long getUnfinished() { return unfinished; }
+	public long getWins(int seat) { return wins[seat]; }
+	public double getAverageRounds() { return games == 0 ? 0 : (double) rounds / games; }
+	public double getWinRate(int seat) { return games == 0 ? 0 : (double) wins[seat] / games; }
+	public double getAverageVp(int seat) { return games == 0 ? 0 : (double) vp[seat] / games; }
+
+	public void write(Writer out) {
+		try {
+			out.write("seats: " + seats + "\n");
+			out.write("games: " + games + "\n");
+			out.write("unfinished: " + unfinished + "\n");
+			out.write("rounds: " + rounds + "\n");
+			out.write("wins: " + join(wins) + "\n");
+			out.write("vp: " + join(vp) + "\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write stats", e);
+		}
+	}
+
+	public static GameStats read(Reader in) throws IOException {
+		GameStats stats = null;
+		BufferedReader br = new BufferedReader(in);
+		String line;
+		while ((line = br.readLine()) != null) {
+			int colon = line.indexOf(':');
+			if (colon < 0) continue;
+			String key = line.substring(0, colon).trim();
+			String value = line.substring(colon + 1).trim();
+			if (key.equals("seats")) {
+				stats = new GameStats(Integer.parseInt(value));
+				continue;
+			}
+			if (stats == null) throw new IOException("Stats do not start with a seat count");
+			switch (key) {
+				case "games": stats.games = Long.parseLong(value); break;
+				case "unfinished": stats.unfinished = Long.parseLong(value); break;
+				case "rounds": stats.rounds = Long.parseLong(value); break;
+				case "wins": split(value, stats.wins); break;
+				case "vp": split(value, stats.vp); break;
+				default: break;
+			}
+		}
+		if (stats == null) throw new IOException("Empty stats");
+		return stats;
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeByte(seats);
+		out.writeLong(games);
+		out.writeLong(unfinished);
+		out.writeLong(rounds);
+		for (int s = 0; s < seats; s++) {
+			out.writeLong(wins[s]);
+			out.writeLong(vp[s]);
+		}
+	}
+
+	public static GameStats readFrom(DataInput in) throws IOException {
+		GameStats stats = new GameStats(in.readUnsignedByte());
+		stats.games = in.readLong();
+		stats.unfinished = in.readLong();
+		stats.rounds = in.readLong();
+		for (int s = 0; s < stats.seats; s++) {
+			stats.wins[s] = in.readLong();
+			stats.vp[s] = in.readLong();
+		}
+		return stats;
+	}
+
+	private static String join(long[] values) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) sb.append(',');
+			sb.append(values[i]);
+		}
+		return sb.toString();
+	}
+
+	private static void split(String value, long[] into) throws IOException {
+		String[] parts = value.split(",");
+		if (parts.length != into.length) throw new IOException("Expected " + into.length + " values: " + value);
+		for (int i = 0; i < parts.length; i++) into[i] = Long.parseLong(parts[i].trim());
+	}
+}
@@ -0,0 +1,22 @@
+package catan;
+
+public enum HarborType {
+	GENERIC(null, 3),
+	WOOD(ResourceType.WOOD, 2),
+	BRICK(ResourceType.BRICK, 2),
+	SHEEP(ResourceType.SHEEP, 2),
+	WHEAT(ResourceType.WHEAT, 2),
+	ORE(ResourceType.ORE, 2);
+
+	private final ResourceType resource;
+	private final int rate;
+
+	HarborType(ResourceType resource, int rate) {
+		this.resource = resource;
+		this.rate = rate;
+	}
+
+	// the resource this harbour trades at its rate, or null for a 3:1 harbour covering every resource
+	public ResourceType getResource() { return resource; }
+	public int getRate() { return rate; }
+}
@@ -7,6 +7,7 @@ public class Hex {
 	private int id;
 	TerrainType terrain;
 	int numberToken;
+	ResourceType resource;
 	List<Node> corners;
 
 	public Hex(int id, TerrainType terrain, int numberToken) {
@@ -19,5 +20,6 @@ public class Hex {
 	public int getId() { return id; }
 	public TerrainType getTerrain() { return terrain; }
 	public int getNumberToken() { return numberToken; }
+	public ResourceType getResource() { return resource; }
 	public List<Node> getCorners() { return corners; }
 }
@@ -0,0 +1,35 @@
+package catan;
+
+/**
+ * Awards 2 VP to the first agent to play 3 knights, moving only when another
+ * agent has played strictly more. Updated as each knight is played.
+ */
+class LargestArmy {
+	static final int MIN_KNIGHTS = 3;
+	static final int AWARD_VP = 2;
+
+	private final GameState state;
+	private int holder = GameState.NO_SEAT;
+
+	LargestArmy(GameState state) {
+		this.state = state;
+	}
+
+	void knightPlayed(int seat) {
+		int[] knights = state.knightsPlayed;
+		if (seat == holder || knights[seat] < MIN_KNIGHTS) return;
+		if (holder != GameState.NO_SEAT && knights[seat] <= knights[holder]) return;
+		if (holder != GameState.NO_SEAT) state.victoryPoints[holder] -= AWARD_VP;
+		state.victoryPoints[seat] += AWARD_VP;
+		holder = seat;
+	}
+
+	int getHolder() {
+		return holder;
+	}
+
+	// moves the award without touching victory points
+	void setHolder(int seat) {
+		holder = seat;
+	}
+}
@@ -0,0 +1,864 @@
+package catan;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays many random-agent games side by side, each turn of every game
+ * advancing together, with all game state in flat arrays rather than one
+ * Board and set of Agents per game: hands as int[games * seats * 5], VP and
+ * piece counts as int[games * seats], and settlements, cities, roads and
+ * road candidates as per-seat bitmasks (one long per 64 nodes or edges).
+ * Each phase of a turn is one loop over the games: roll every game's dice,
+ * pay out every game's production from its per-roll tables, then let every
+ * game's seat choose and play its move.
+ *
+ * The rules and the policy are those of CatanSimulator with RandomAgents:
+ * the same setup, robber, hand limit, trades, development cards and awards,
+ * so results match a batch of simulators in distribution but not game for
+ * game. Only random agents are supported.
+ *
+ * Usage: java -cp bin catan.LockstepEngine config.txt games
+ */
+public class LockstepEngine {
+	private static final int RESOURCES = ResourceType.values().length;
+	private static final int CARDS = DevelopmentCardType.values().length;
+	private static final int MAX_TRADES_PER_TURN = 4;
+	private static final int HAND_LIMIT = Agent.HAND_LIMIT;
+	private static final int WINNING_VP = 10;
+
+	// moves are packed as kind << 24 | argument
+	private static final int SETTLEMENT = 1;
+	private static final int ROAD = 2;
+	private static final int CITY = 3;
+	private static final int BUY = 4;
+	private static final int KNIGHT = 5;
+	private static final int ROAD_BUILDING = 6;
+	private static final int YEAR_OF_PLENTY = 7;
+	private static final int MONOPOLY = 8;
+	private static final int TRADE = 9;
+
+	private final int games;
+	private final int seats;
+	private final int maxRounds;
+	private final GameRandom rng;
+
+	// topology, shared by every game
+	private final int nodeCount;
+	private final int edgeCount;
+	private final int hexCount;
+	private final int nodeWords;
+	private final int edgeWords;
+	private final int[][] nodeEdges;
+	private final int[][] nodeHexes;
+	private final int[][] hexCorners;
+	private final int[] edgeA;
+	private final int[] edgeB;
+	// HarborType ordinal per node, -1 for none
+	private final int[] harbor;
+
+	// per game, indexed [game * hexCount + hex]; resource -1 for the desert
+	private final int[] hexResource;
+	private final int[] hexToken;
+	private final int[] robber;
+	private final int[] deck;
+	private final int[] deckNext;
+	private final int[] longestRoadHolder;
+	private final int[] largestArmyHolder;
+	private final int[] rounds;
+	private final int[] winner;
+	private final boolean[] done;
+	private final int[] rolls;
+
+	// per game and seat, indexed [game * seats + seat] (times the row width for the wider ones)
+	private final int[] hands;
+	private final int[] tradeRates;
+	private final int[] vp;
+	private final int[] settlements;
+	private final int[] cities;
+	private final int[] roads;
+	private final int[] devCards;
+	private final int[] newDevCards;
+	private final boolean[] playedDevCard;
+	private final int[] knights;
+	private final int[] roadLength;
+	// cards per roll, indexed [((game * seats + seat) * 13 + roll) * RESOURCES + resource]
+	private final int[] production;
+
+	// bitmasks: node masks are nodeWords longs per game or per game and seat, edge masks edgeWords
+	private final long[] open;
+	private final long[] buildings;
+	private final long[] settled;
+	private final long[] upgraded;
+	private final long[] roadNodes;
+	private final long[] roadEdges;
+	private final long[] roadCandidates;
+	private final long[] takenEdges;
+
+	// scratch for one decision at a time
+	private final int[] moves;
+	private final long[] seenEdges;
+	private final long[] blocked;
+	// one road component as a local graph, for longest-trail walks
+	private final int maxDegree;
+	private final int[] localNode;
+	private final int[] componentList;
+	private final boolean[] localBlocked;
+	private final int[] localDegree;
+	private final int[] localAdj;
+	private final int[] localEnds;
+	private final int[] hand = new int[RESOURCES];
+	private final int[] rates = new int[RESOURCES];
+	private final int[] victims;
+
+	public LockstepEngine(GameConfig config, int games) {
+		for (int s = 0; s < config.getPlayers(); s++) {
+			if (!config.getAgentType(s).equals("random")) {
+				throw new IllegalArgumentException("LockstepEngine only plays random agents, not " + config.getAgentType(s));
+			}
+		}
+		this.games = games;
+		this.seats = config.getPlayers();
+		this.maxRounds = config.getTurns();
+		this.rng = new GameRandom(config.isSeeded() ? config.getSeed() : System.nanoTime());
+
+		Board board = new Board(new GameRandom(rng.nextLong()));
+		BoardTopology topology = config.createTopology();
+		if (topology == null) {
+			board.setupMap(config.getMapFile());
+		} else {
+			TerrainType[] terrains = new TerrainType[topology.getHexCount()];
+			int[] tokens = new int[topology.getHexCount()];
+			topology.defaultLayout(terrains, tokens);
+			board.setupMap(topology, terrains, tokens);
+		}
+		nodeCount = board.getNodes().size();
+		edgeCount = board.getEdges().size();
+		hexCount = board.getHexes().size();
+		nodeWords = (nodeCount + 63) >>> 6;
+		edgeWords = (edgeCount + 63) >>> 6;
+		nodeEdges = new int[nodeCount][];
+		nodeHexes = new int[nodeCount][];
+		harbor = new int[nodeCount];
+		for (int n = 0; n < nodeCount; n++) {
+			Node node = board.getNode(n);
+			nodeEdges[n] = new int[node.edges.size()];
+			for (int i = 0; i < nodeEdges[n].length; i++) nodeEdges[n][i] = node.edges.get(i).getId();
+			nodeHexes[n] = new int[node.hexes.size()];
+			for (int i = 0; i < nodeHexes[n].length; i++) nodeHexes[n][i] = node.hexes.get(i).getId();
+			harbor[n] = (node.harbor != null) ? node.harbor.ordinal() : -1;
+		}
+		edgeA = new int[edgeCount];
+		edgeB = new int[edgeCount];
+		for (int e = 0; e < edgeCount; e++) {
+			edgeA[e] = board.getEdge(e).getA().getId();
+			edgeB[e] = board.getEdge(e).getB().getId();
+		}
+		hexCorners = new int[hexCount][6];
+		for (int h = 0; h < hexCount; h++) {
+			List<Node> corners = board.getHexes().get(h).getCorners();
+			for (int c = 0; c < 6; c++) hexCorners[h][c] = corners.get(c).getId();
+		}
+
+		hexResource = new int[games * hexCount];
+		hexToken = new int[games * hexCount];
+		robber = new int[games];
+		deck = new int[games * DevelopmentDeck.SIZE];
+		deckNext = new int[games];
+		longestRoadHolder = new int[games];
+		largestArmyHolder = new int[games];
+		rounds = new int[games];
+		winner = new int[games];
+		done = new boolean[games];
+		rolls = new int[games];
+
+		int seatSlots = games * seats;
+		hands = new int[seatSlots * RESOURCES];
+		tradeRates = new int[seatSlots * RESOURCES];
+		vp = new int[seatSlots];
+		settlements = new int[seatSlots];
+		cities = new int[seatSlots];
+		roads = new int[seatSlots];
+		devCards = new int[seatSlots * CARDS];
+		newDevCards = new int[seatSlots * CARDS];
+		playedDevCard = new boolean[seatSlots];
+		knights = new int[seatSlots];
+		roadLength = new int[seatSlots];
+		production = new int[seatSlots * 13 * RESOURCES];
+
+		open = new long[games * nodeWords];
+		buildings = new long[games * nodeWords];
+		settled = new long[seatSlots * nodeWords];
+		upgraded = new long[seatSlots * nodeWords];
+		roadNodes = new long[seatSlots * nodeWords];
+		roadEdges = new long[seatSlots * edgeWords];
+		roadCandidates = new long[seatSlots * edgeWords];
+		takenEdges = new long[games * edgeWords];
+
+		moves = new int[2 * nodeCount + edgeCount + 16];
+		seenEdges = new long[edgeWords];
+		blocked = new long[nodeWords];
+		int degree = 0;
+		for (int[] adj : nodeEdges) degree = Math.max(degree, adj.length);
+		maxDegree = degree;
+		localNode = new int[nodeCount];
+		componentList = new int[nodeCount];
+		localBlocked = new boolean[nodeCount];
+		localDegree = new int[nodeCount];
+		localAdj = new int[nodeCount * maxDegree];
+		localEnds = new int[MoveValidator.MAX_ROADS];
+		victims = new int[seats];
+
+		boolean randomLayout = config.isRandomMap() || topology != null;
+		for (int g = 0; g < games; g++) {
+			if (randomLayout) {
+				BoardGenerator generator = new BoardGenerator(board, rng.nextLong());
+				generator.setMaxPipSpread(config.getMapPipSpread());
+				generator.generate();
+				generator.apply(board);
+			}
+			initGame(g, board);
+		}
+	}
+
+	private void initGame(int g, Board board) {
+		robber[g] = -1;
+		for (int h = 0; h < hexCount; h++) {
+			Hex hex = board.getHexes().get(h);
+			hexResource[g * hexCount + h] = (hex.resource != null) ? hex.resource.ordinal() : -1;
+			hexToken[g * hexCount + h] = hex.numberToken;
+			if (hex.terrain == TerrainType.DESERT && robber[g] < 0) robber[g] = h;
+		}
+		int i = g * DevelopmentDeck.SIZE;
+		for (DevelopmentCardType t : DevelopmentCardType.values()) {
+			for (int c = 0; c < t.getCount(); c++) deck[i++] = t.ordinal();
+		}
+		for (int j = DevelopmentDeck.SIZE - 1; j > 0; j--) {
+			int k = rng.nextInt(j + 1);
+			int tmp = deck[g * DevelopmentDeck.SIZE + j];
+			deck[g * DevelopmentDeck.SIZE + j] = deck[g * DevelopmentDeck.SIZE + k];
+			deck[g * DevelopmentDeck.SIZE + k] = tmp;
+		}
+		longestRoadHolder[g] = GameState.NO_SEAT;
+		largestArmyHolder[g] = GameState.NO_SEAT;
+		winner[g] = GameState.NO_SEAT;
+		for (int n = 0; n < nodeCount; n++) set(open, g * nodeWords, n);
+		for (int r = g * seats * RESOURCES; r < (g + 1) * seats * RESOURCES; r++) tradeRates[r] = Trading.BANK_RATE;
+	}
+
+	public void run() {
+		for (int g = 0; g < games; g++) setup(g);
+		for (int round = 1; round <= maxRounds; round++) {
+			for (int s = 0; s < seats; s++) {
+				for (int g = 0; g < games; g++) {
+					if (!done[g]) beginTurn(g * seats + s);
+				}
+				for (int g = 0; g < games; g++) {
+					if (!done[g]) rolls[g] = rng.nextInt(6) + 1 + rng.nextInt(6) + 1;
+				}
+				for (int g = 0; g < games; g++) {
+					if (done[g]) continue;
+					if (rolls[g] == 7) resolveSeven(g, s);
+					else distribute(g, rolls[g]);
+				}
+				for (int g = 0; g < games; g++) {
+					if (!done[g]) act(g, s);
+				}
+			}
+			int active = 0;
+			for (int g = 0; g < games; g++) {
+				if (done[g]) continue;
+				rounds[g] = round;
+				for (int s = 0; s < seats && winner[g] == GameState.NO_SEAT; s++) {
+					if (vp[g * seats + s] >= WINNING_VP) winner[g] = s;
+				}
+				if (winner[g] != GameState.NO_SEAT) done[g] = true;
+				else active++;
+			}
+			if (active == 0) break;
+		}
+	}
+
+	/** Winner seat (-1 at the round cap), rounds played, then each seat's VP, as ExperimentRunner reports a game. */
+	public int[] getResult(int game) {
+		int[] result = new int[2 + seats];
+		result[0] = winner[game];
+		result[1] = rounds[game];
+		for (int s = 0; s < seats; s++) result[2 + s] = vp[game * seats + s];
+		return result;
+	}
+
+	public GameStats getStats() {
+		GameStats stats = new GameStats(seats);
+		int[] finalVp = new int[seats];
+		for (int g = 0; g < games; g++) {
+			System.arraycopy(vp, g * seats, finalVp, 0, seats);
+			stats.add(winner[g], rounds[g], finalVp);
+		}
+		return stats;
+	}
+
+	// snake order; the second settlement pays one card per adjacent resource hex
+	private void setup(int g) {
+		for (int s = 0; s < seats; s++) setupPlacement(g, s, false);
+		for (int s = seats - 1; s >= 0; s--) setupPlacement(g, s, true);
+	}
+
+	private void setupPlacement(int g, int s, boolean grantResources) {
+		int count = count(open, g * nodeWords, nodeWords);
+		if (count == 0) return;
+		int n = nth(open, g * nodeWords, nodeWords, rng.nextInt(count));
+		placeSettlement(g, s, n);
+		int ps = g * seats + s;
+		if (grantResources) {
+			for (int h : nodeHexes[n]) {
+				int r = hexResource[g * hexCount + h];
+				if (r >= 0) hands[ps * RESOURCES + r]++;
+			}
+		}
+		int free = 0;
+		for (int e : nodeEdges[n]) {
+			if (!get(takenEdges, g * edgeWords, e)) moves[free++] = e;
+		}
+		if (free > 0) placeRoad(g, s, moves[rng.nextInt(free)]);
+	}
+
+	private void beginTurn(int ps) {
+		for (int c = 0; c < CARDS; c++) {
+			devCards[ps * CARDS + c] += newDevCards[ps * CARDS + c];
+			newDevCards[ps * CARDS + c] = 0;
+		}
+		playedDevCard[ps] = false;
+	}
+
+	private void distribute(int g, int roll) {
+		for (int ps = g * seats; ps < (g + 1) * seats; ps++) {
+			int from = (ps * 13 + roll) * RESOURCES;
+			for (int r = 0; r < RESOURCES; r++) hands[ps * RESOURCES + r] += production[from + r];
+		}
+	}
+
+	private void resolveSeven(int g, int roller) {
+		for (int ps = g * seats; ps < (g + 1) * seats; ps++) {
+			int total = handSize(ps);
+			if (total <= HAND_LIMIT) continue;
+			for (int i = total / 2; i > 0; i--) removeRandomCard(ps);
+		}
+		rob(g, roller, robberTarget(g));
+	}
+
+	// any hex but the robber's, as RandomAgent picks
+	private int robberTarget(int g) {
+		if (robber[g] < 0) return rng.nextInt(hexCount);
+		int target = rng.nextInt(hexCount - 1);
+		return (target >= robber[g]) ? target + 1 : target;
+	}
+
+	// moves the robber to target and steals a card from a random victim there
+	private void rob(int g, int thief, int target) {
+		moveRobber(g, target);
+		int count = 0;
+		for (int n : hexCorners[target]) {
+			int owner = owner(g, n);
+			if (owner == GameState.NO_SEAT || owner == thief || handSize(g * seats + owner) == 0) continue;
+			boolean seen = false;
+			for (int i = 0; i < count; i++) seen |= victims[i] == owner;
+			if (!seen) victims[count++] = owner;
+		}
+		if (count == 0) return;
+		int stolen = removeRandomCard(g * seats + victims[rng.nextInt(count)]);
+		hands[(g * seats + thief) * RESOURCES + stolen]++;
+	}
+
+	private int removeRandomCard(int ps) {
+		int pick = rng.nextInt(handSize(ps));
+		for (int r = 0; r < RESOURCES; r++) {
+			pick -= hands[ps * RESOURCES + r];
+			if (pick < 0) {
+				hands[ps * RESOURCES + r]--;
+				return r;
+			}
+		}
+		throw new IllegalStateException("empty hand");
+	}
+
+	// random builds while over the hand limit, then one decision, trades first, as RandomAgent plays it
+	private void act(int g, int s) {
+		while (handSize(g * seats + s) > HAND_LIMIT) {
+			copyHand(g * seats + s);
+			int count = addBuilds(g, s, 0);
+			if (count == 0) break;
+			execute(g, s, moves[rng.nextInt(count)]);
+		}
+		int move = decide(g, s);
+		for (int trades = 0; (move >>> 24) == TRADE && trades < MAX_TRADES_PER_TURN; trades++) {
+			int ps = g * seats + s;
+			int give = (move >>> 8) & 0xFF;
+			hands[ps * RESOURCES + give] -= tradeRates[ps * RESOURCES + give];
+			hands[ps * RESOURCES + (move & 0xFF)]++;
+			move = decide(g, s);
+		}
+		if (move == 0 || (move >>> 24) == TRADE) return;
+		execute(g, s, move);
+	}
+
+	// a uniformly random legal move, or 0 to pass
+	private int decide(int g, int s) {
+		int ps = g * seats + s;
+		copyHand(ps);
+		int count = addBuilds(g, s, 0);
+		if (canPlay(ps, DevelopmentCardType.KNIGHT)) moves[count++] = KNIGHT << 24;
+		if (canPlay(ps, DevelopmentCardType.ROAD_BUILDING) && roads[ps] < MoveValidator.MAX_ROADS
+				&& !isEmpty(roadCandidates, ps * edgeWords, edgeWords)) {
+			moves[count++] = ROAD_BUILDING << 24;
+		}
+		if (canPlay(ps, DevelopmentCardType.YEAR_OF_PLENTY)) moves[count++] = YEAR_OF_PLENTY << 24;
+		if (canPlay(ps, DevelopmentCardType.MONOPOLY)) moves[count++] = MONOPOLY << 24;
+
+		if (count == 0) {
+			// nothing to build: the first trade towards each build with a free spot
+			if (settlements[ps] < MoveValidator.MAX_SETTLEMENTS && intersects(open, g * nodeWords, roadNodes, ps * nodeWords, nodeWords)) {
+				count = addTrade(ps, Cost.SETTLEMENT, count);
+			}
+			if (roads[ps] < MoveValidator.MAX_ROADS && !isEmpty(roadCandidates, ps * edgeWords, edgeWords)) {
+				count = addTrade(ps, Cost.ROAD, count);
+			}
+			if (cities[ps] < MoveValidator.MAX_CITIES && settlements[ps] > 0) count = addTrade(ps, Cost.CITY, count);
+		}
+		return (count == 0) ? 0 : moves[rng.nextInt(count)];
+	}
+
+	// the affordable builds appended to moves from count, which is returned advanced past them; the hand must be copied
+	private int addBuilds(int g, int s, int count) {
+		int ps = g * seats + s;
+		if (settlements[ps] < MoveValidator.MAX_SETTLEMENTS && covers(Cost.SETTLEMENT)) {
+			for (int w = 0; w < nodeWords; w++) {
+				long bits = open[g * nodeWords + w] & roadNodes[ps * nodeWords + w];
+				for (; bits != 0; bits &= bits - 1) moves[count++] = SETTLEMENT << 24 | (w << 6) + Long.numberOfTrailingZeros(bits);
+			}
+		}
+		if (roads[ps] < MoveValidator.MAX_ROADS && covers(Cost.ROAD)) {
+			for (int w = 0; w < edgeWords; w++) {
+				for (long bits = roadCandidates[ps * edgeWords + w]; bits != 0; bits &= bits - 1) {
+					moves[count++] = ROAD << 24 | (w << 6) + Long.numberOfTrailingZeros(bits);
+				}
+			}
+		}
+		if (cities[ps] < MoveValidator.MAX_CITIES && covers(Cost.CITY)) {
+			for (int w = 0; w < nodeWords; w++) {
+				for (long bits = settled[ps * nodeWords + w]; bits != 0; bits &= bits - 1) {
+					moves[count++] = CITY << 24 | (w << 6) + Long.numberOfTrailingZeros(bits);
+				}
+			}
+		}
+		if (deckNext[g] < DevelopmentDeck.SIZE && covers(Cost.DEVELOPMENT_CARD)) moves[count++] = BUY << 24;
+		return count;
+	}
+
+	private int addTrade(int ps, Cost c, int count) {
+		System.arraycopy(tradeRates, ps * RESOURCES, rates, 0, RESOURCES);
+		int[] trade = Trading.nextTrade(hand, rates, c.amounts());
+		if (trade == null || trade[0] == trade[1] || hand[trade[0]] < tradeRates[ps * RESOURCES + trade[0]]) return count;
+		moves[count] = TRADE << 24 | trade[0] << 8 | trade[1];
+		return count + 1;
+	}
+
+	private void execute(int g, int s, int move) {
+		int ps = g * seats + s;
+		int arg = move & 0xFFFFFF;
+		switch (move >>> 24) {
+			case SETTLEMENT:
+				pay(ps, Cost.SETTLEMENT);
+				placeSettlement(g, s, arg);
+				break;
+			case ROAD:
+				pay(ps, Cost.ROAD);
+				placeRoad(g, s, arg);
+				break;
+			case CITY:
+				pay(ps, Cost.CITY);
+				upgradeToCity(g, s, arg);
+				break;
+			case BUY:
+				pay(ps, Cost.DEVELOPMENT_CARD);
+				int card = deck[g * DevelopmentDeck.SIZE + deckNext[g]++];
+				if (card == DevelopmentCardType.VICTORY_POINT.ordinal()) {
+					devCards[ps * CARDS + card]++;
+					vp[ps]++;
+				} else {
+					newDevCards[ps * CARDS + card]++;
+				}
+				break;
+			case KNIGHT:
+				play(ps, DevelopmentCardType.KNIGHT);
+				rob(g, s, robberTarget(g));
+				knights[ps]++;
+				knightPlayed(g, s);
+				break;
+			case ROAD_BUILDING:
+				play(ps, DevelopmentCardType.ROAD_BUILDING);
+				int candidates = count(roadCandidates, ps * edgeWords, edgeWords);
+				int first = rng.nextInt(candidates);
+				int firstEdge = nth(roadCandidates, ps * edgeWords, edgeWords, first);
+				int secondEdge = -1;
+				if (candidates > 1) {
+					int second = rng.nextInt(candidates - 1);
+					secondEdge = nth(roadCandidates, ps * edgeWords, edgeWords, (second >= first) ? second + 1 : second);
+				}
+				placeRoad(g, s, firstEdge);
+				if (secondEdge >= 0 && !get(takenEdges, g * edgeWords, secondEdge) && roads[ps] < MoveValidator.MAX_ROADS) {
+					placeRoad(g, s, secondEdge);
+				}
+				break;
+			case YEAR_OF_PLENTY:
+				play(ps, DevelopmentCardType.YEAR_OF_PLENTY);
+				hands[ps * RESOURCES + rng.nextInt(RESOURCES)]++;
+				hands[ps * RESOURCES + rng.nextInt(RESOURCES)]++;
+				break;
+			case MONOPOLY:
+				play(ps, DevelopmentCardType.MONOPOLY);
+				int r = rng.nextInt(RESOURCES);
+				for (int other = g * seats; other < (g + 1) * seats; other++) {
+					if (other == ps) continue;
+					hands[ps * RESOURCES + r] += hands[other * RESOURCES + r];
+					hands[other * RESOURCES + r] = 0;
+				}
+				break;
+			default:
+				throw new IllegalStateException("Unknown move: " + move);
+		}
+	}
+
+	private void placeSettlement(int g, int s, int n) {
+		int ps = g * seats + s;
+		set(settled, ps * nodeWords, n);
+		set(buildings, g * nodeWords, n);
+		vp[ps]++;
+		settlements[ps]++;
+		if (harbor[n] >= 0) {
+			HarborType h = HarborType.values()[harbor[n]];
+			for (int r = 0; r < RESOURCES; r++) {
+				if (h.getResource() == null || h.getResource().ordinal() == r) {
+					tradeRates[ps * RESOURCES + r] = Math.min(tradeRates[ps * RESOURCES + r], h.getRate());
+				}
+			}
+		}
+		addProduction(g, ps, n, 1);
+		clear(open, g * nodeWords, n);
+		for (int e : nodeEdges[n]) {
+			clear(open, g * nodeWords, (edgeA[e] == n) ? edgeB[e] : edgeA[e]);
+			if (!get(takenEdges, g * edgeWords, e)) set(roadCandidates, ps * edgeWords, e);
+		}
+		// a settlement splits any opponent road passing through it
+		for (int other = 0; other < seats; other++) {
+			if (other == s) continue;
+			int through = 0;
+			for (int e : nodeEdges[n]) {
+				if (get(roadEdges, (g * seats + other) * edgeWords, e)) through++;
+			}
+			if (through >= 2) {
+				roadLength[g * seats + other] = longestRoad(g, other);
+				updateLongestRoad(g);
+			}
+		}
+	}
+
+	private void upgradeToCity(int g, int s, int n) {
+		int ps = g * seats + s;
+		clear(settled, ps * nodeWords, n);
+		set(upgraded, ps * nodeWords, n);
+		vp[ps]++;
+		settlements[ps]--;
+		cities[ps]++;
+		addProduction(g, ps, n, 1);
+	}
+
+	private void placeRoad(int g, int s, int e) {
+		int ps = g * seats + s;
+		set(roadEdges, ps * edgeWords, e);
+		set(takenEdges, g * edgeWords, e);
+		roads[ps]++;
+		for (int other = g * seats; other < (g + 1) * seats; other++) clear(roadCandidates, other * edgeWords, e);
+		extendRoadEnd(g, ps, edgeA[e]);
+		extendRoadEnd(g, ps, edgeB[e]);
+		if (roads[ps] > LongestRoad.MIN_LENGTH) {
+			// a new road only lengthens the trails of its own component
+			Arrays.fill(seenEdges, 0);
+			roadLength[ps] = Math.max(roadLength[ps], componentRoad(g, s, e));
+		} else {
+			roadLength[ps] = longestRoad(g, s);
+		}
+		updateLongestRoad(g);
+	}
+
+	// n joins seat ps's road nodes, and its free edges become road candidates
+	private void extendRoadEnd(int g, int ps, int n) {
+		set(roadNodes, ps * nodeWords, n);
+		for (int adj : nodeEdges[n]) {
+			if (!get(takenEdges, g * edgeWords, adj)) set(roadCandidates, ps * edgeWords, adj);
+		}
+	}
+
+	private void addProduction(int g, int ps, int n, int amount) {
+		for (int h : nodeHexes[n]) {
+			int r = hexResource[g * hexCount + h];
+			int token = hexToken[g * hexCount + h];
+			if (r >= 0 && token >= 2 && h != robber[g]) production[(ps * 13 + token) * RESOURCES + r] += amount;
+		}
+	}
+
+	private void moveRobber(int g, int target) {
+		if (robber[g] >= 0) addHexProduction(g, robber[g], 1);
+		robber[g] = target;
+		addHexProduction(g, target, -1);
+	}
+
+	private void addHexProduction(int g, int h, int sign) {
+		int r = hexResource[g * hexCount + h];
+		int token = hexToken[g * hexCount + h];
+		if (r < 0 || token < 2) return;
+		for (int n : hexCorners[h]) {
+			int owner = owner(g, n);
+			if (owner == GameState.NO_SEAT) continue;
+			int ps = g * seats + owner;
+			int amount = get(upgraded, ps * nodeWords, n) ? 2 : 1;
+			production[(ps * 13 + token) * RESOURCES + r] += sign * amount;
+		}
+	}
+
+	private int owner(int g, int n) {
+		if (!get(buildings, g * nodeWords, n)) return GameState.NO_SEAT;
+		for (int s = 0; s < seats; s++) {
+			int ps = g * seats + s;
+			if (get(settled, ps * nodeWords, n) || get(upgraded, ps * nodeWords, n)) return s;
+		}
+		return GameState.NO_SEAT;
+	}
+
+	// longest trail over s's roads that does not pass through another seat's building
+	private int longestRoad(int g, int s) {
+		int ps = g * seats + s;
+		// fewer roads than the award needs cannot change who holds it
+		if (roads[ps] < LongestRoad.MIN_LENGTH) return roads[ps];
+		Arrays.fill(seenEdges, 0);
+		int longest = 0;
+		for (int w = 0; w < edgeWords; w++) {
+			long bits;
+			while ((bits = roadEdges[ps * edgeWords + w] & ~seenEdges[w]) != 0) {
+				longest = Math.max(longest, componentRoad(g, s, (w << 6) + Long.numberOfTrailingZeros(bits)));
+			}
+		}
+		return longest;
+	}
+
+	/**
+	 * Longest trail in the component of s's roads that holds edge e, marking
+	 * the component's edges in seenEdges. As in LongestRoad, trails are only
+	 * walked from odd-degree nodes and other seats' buildings, unless the
+	 * component has neither and is a closed circuit.
+	 */
+	private int componentRoad(int g, int s, int e) {
+		int ps = g * seats + s;
+		for (int w = 0; w < nodeWords; w++) {
+			blocked[w] = buildings[g * nodeWords + w] & ~settled[ps * nodeWords + w] & ~upgraded[ps * nodeWords + w];
+		}
+		// flood fill from e, not passing through blocked nodes; localNode holds 1 + each reached node's local index
+		int count = 0;
+		set(seenEdges, 0, e);
+		componentList[count++] = edgeA[e];
+		localNode[edgeA[e]] = count;
+		componentList[count++] = edgeB[e];
+		localNode[edgeB[e]] = count;
+		for (int i = 0; i < count; i++) {
+			int n = componentList[i];
+			if (get(blocked, 0, n)) continue;
+			for (int adj : nodeEdges[n]) {
+				if (!get(roadEdges, ps * edgeWords, adj)) continue;
+				set(seenEdges, 0, adj);
+				int next = (edgeA[adj] == n) ? edgeB[adj] : edgeA[adj];
+				if (localNode[next] == 0) {
+					componentList[count++] = next;
+					localNode[next] = count;
+				}
+			}
+		}
+
+		// the component as a small graph of at most MAX_ROADS edges, so a walk tracks used edges in an int
+		int edges = 0;
+		boolean anyEnd = false;
+		for (int i = 0; i < count; i++) localDegree[i] = 0;
+		for (int i = 0; i < count; i++) {
+			int n = componentList[i];
+			localBlocked[i] = get(blocked, 0, n);
+			if (localBlocked[i] || degree(ps, n) % 2 == 1) anyEnd = true;
+			for (int adj : nodeEdges[n]) {
+				if (!get(roadEdges, ps * edgeWords, adj)) continue;
+				int j = localNode[(edgeA[adj] == n) ? edgeB[adj] : edgeA[adj]] - 1;
+				// each edge once, and none leading out of the component past a blocked node
+				if (j < i) continue;
+				localEnds[edges] = i ^ j;
+				localAdj[i * maxDegree + localDegree[i]++] = edges;
+				localAdj[j * maxDegree + localDegree[j]++] = edges;
+				edges++;
+			}
+		}
+		int longest = 0;
+		for (int i = 0; i < count; i++) {
+			// no trail is longer than the component, so stop once one uses every edge
+			if (longest < edges && (!anyEnd || localBlocked[i] || localDegree[i] % 2 == 1)) longest = Math.max(longest, walk(i, 0));
+			localNode[componentList[i]] = 0;
+		}
+		return longest;
+	}
+
+	private int degree(int ps, int n) {
+		int degree = 0;
+		for (int e : nodeEdges[n]) {
+			if (get(roadEdges, ps * edgeWords, e)) degree++;
+		}
+		return degree;
+	}
+
+	// longest trail from local node v over edges not in used, stopping at blocked nodes
+	private int walk(int v, int used) {
+		int longest = 0;
+		for (int k = 0; k < localDegree[v]; k++) {
+			int edge = localAdj[v * maxDegree + k];
+			if ((used & (1 << edge)) != 0) continue;
+			int next = localEnds[edge] ^ v;
+			longest = Math.max(longest, 1 + (localBlocked[next] ? 0 : walk(next, used | (1 << edge))));
+		}
+		return longest;
+	}
+
+	// as LongestRoad: the holder keeps the award while at least tied for longest
+	private void updateLongestRoad(int g) {
+		int top = 0;
+		int leader = GameState.NO_SEAT;
+		boolean tied = false;
+		for (int s = 0; s < seats; s++) {
+			int length = roadLength[g * seats + s];
+			if (length > top) {
+				top = length;
+				leader = s;
+				tied = false;
+			} else if (length == top) {
+				tied = true;
+			}
+		}
+		int holder = longestRoadHolder[g];
+		if (holder != GameState.NO_SEAT && roadLength[g * seats + holder] >= LongestRoad.MIN_LENGTH
+				&& roadLength[g * seats + holder] >= top) {
+			return;
+		}
+		int next = (top >= LongestRoad.MIN_LENGTH && !tied) ? leader : GameState.NO_SEAT;
+		if (next == holder) return;
+		if (holder != GameState.NO_SEAT) vp[g * seats + holder] -= LongestRoad.AWARD_VP;
+		if (next != GameState.NO_SEAT) vp[g * seats + next] += LongestRoad.AWARD_VP;
+		longestRoadHolder[g] = next;
+	}
+
+	private void knightPlayed(int g, int s) {
+		int holder = largestArmyHolder[g];
+		int ps = g * seats + s;
+		if (s == holder || knights[ps] < LargestArmy.MIN_KNIGHTS) return;
+		if (holder != GameState.NO_SEAT && knights[ps] <= knights[g * seats + holder]) return;
+		if (holder != GameState.NO_SEAT) vp[g * seats + holder] -= LargestArmy.AWARD_VP;
+		vp[ps] += LargestArmy.AWARD_VP;
+		largestArmyHolder[g] = s;
+	}
+
+	private boolean canPlay(int ps, DevelopmentCardType card) {
+		return !playedDevCard[ps] && devCards[ps * CARDS + card.ordinal()] > 0;
+	}
+
+	private void play(int ps, DevelopmentCardType card) {
+		devCards[ps * CARDS + card.ordinal()]--;
+		playedDevCard[ps] = true;
+	}
+
+	private void pay(int ps, Cost c) {
+		int[] amounts = c.amounts();
+		for (int r = 0; r < RESOURCES; r++) hands[ps * RESOURCES + r] -= amounts[r];
+	}
+
+	private void copyHand(int ps) {
+		System.arraycopy(hands, ps * RESOURCES, hand, 0, RESOURCES);
+	}
+
+	private boolean covers(Cost c) {
+		int[] amounts = c.amounts();
+		for (int r = 0; r < RESOURCES; r++) {
+			if (hand[r] < amounts[r]) return false;
+		}
+		return true;
+	}
+
+	private int handSize(int ps) {
+		int total = 0;
+		for (int r = 0; r < RESOURCES; r++) total += hands[ps * RESOURCES + r];
+		return total;
+	}
+
+	private static boolean get(long[] mask, int offset, int i) {
+		return (mask[offset + (i >>> 6)] & (1L << i)) != 0;
+	}
+
+	private static void set(long[] mask, int offset, int i) {
+		mask[offset + (i >>> 6)] |= 1L << i;
+	}
+
+	private static void clear(long[] mask, int offset, int i) {
+		mask[offset + (i >>> 6)] &= ~(1L << i);
+	}
+
+	private static int count(long[] mask, int offset, int words) {
+		int count = 0;
+		for (int w = 0; w < words; w++) count += Long.bitCount(mask[offset + w]);
+		return count;
+	}
+
+	private static boolean isEmpty(long[] mask, int offset, int words) {
+		for (int w = 0; w < words; w++) {
+			if (mask[offset + w] != 0) return false;
+		}
+		return true;
+	}
+
+	private static boolean intersects(long[] a, int aOffset, long[] b, int bOffset, int words) {
+		for (int w = 0; w < words; w++) {
+			if ((a[aOffset + w] & b[bOffset + w]) != 0) return true;
+		}
+		return false;
+	}
+
+	// index of the k-th set bit, counting from 0
+	private static int nth(long[] mask, int offset, int words, int k) {
+		for (int w = 0; w < words; w++) {
+			long bits = mask[offset + w];
+			int c = Long.bitCount(bits);
+			if (k < c) {
+				for (; k > 0; k--) bits &= bits - 1;
+				return (w << 6) + Long.numberOfTrailingZeros(bits);
+			}
+			k -= c;
+		}
+		throw new IllegalArgumentException("fewer than " + (k + 1) + " bits set");
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: java -cp bin catan.LockstepEngine <config> <games>");
+			System.exit(2);
+		}
+		long start = System.nanoTime();
+		LockstepEngine engine = new LockstepEngine(GameConfig.load(args[0]), Integer.parseInt(args[1]));
+		engine.run();
+		GameStats stats = engine.getStats();
+		System.out.printf("games: %d, unfinished: %d, average rounds: %.2f, %.0f ms%n", stats.getGames(),
+				stats.getUnfinished(), stats.getAverageRounds(), (System.nanoTime() - start) / 1e6);
+		for (int s = 0; s < stats.getSeats(); s++) {
+			System.out.printf("P%d: win rate %.4f, average VP %.3f%n", s, stats.getWinRate(s), stats.getAverageVp(s));
+		}
+	}
+}
@@ -0,0 +1,258 @@
+package catan;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Tracks each agent's longest road and the Longest Road award (2 VP).
+ *
+ * Every owned edge carries the label of the road component it belongs to,
+ * and each component caches its longest trail. Placing a road only re-walks
+ * the component(s) it touches; placing a settlement only re-walks the
+ * opponent components passing through that node.
+ *
+ * The labels double as each seat's road network: two roads are connected
+ * when they carry the same label, and an opponent's settlement splits a
+ * component like any other cut. A count of components per seat is kept
+ * alongside.
+ */
+class LongestRoad {
+	static final int MIN_LENGTH = 5;
+	static final int AWARD_VP = 2;
+
+	// component label per edge id (0 = unowned); a label is 1 + the lowest edge id in the component
+	private final int[] label;
+	private final int[] componentLength;
+	private final int[] componentOwner;
+	// live components per seat
+	private final int[] componentCount;
+	private final boolean[] used;
+	private final boolean[] tried;
+	private final GameState state;
+	// longest trail per seat
+	private final int[] best;
+	private int holder = GameState.NO_SEAT;
+
+	LongestRoad(int nodeCount, int edgeCount, GameState state) {
+		tried = new boolean[nodeCount];
+		label = new int[edgeCount];
+		componentLength = new int[edgeCount + 1];
+		componentOwner = new int[edgeCount + 1];
+		Arrays.fill(componentOwner, GameState.NO_SEAT);
+		used = new boolean[edgeCount];
+		this.state = state;
+		best = new int[state.seats];
+		componentCount = new int[state.seats];
+	}
+
+	void roadPlaced(int a, Edge e) {
+		clearAdjacentComponents(a, e.getA(), e);
+		clearAdjacentComponents(a, e.getB(), e);
+		relabel(a, e);
+		refreshBest(a);
+	}
+
+	void settlementPlaced(int a, Node n) {
+		for (Edge e : n.edges) {
+			int other = e.owner;
+			if (other == GameState.NO_SEAT || other == a || label[e.getId()] == 0) continue;
+			if (countOwned(other, n) < 2) continue;
+			// this node used to join two of other's roads; split the component
+			clear(label[e.getId()]);
+			for (Edge split : n.edges) {
+				if (split.owner == other) label[split.getId()] = 0;
+			}
+			for (Edge split : n.edges) {
+				if (split.owner == other && label[split.getId()] == 0) relabel(other, split);
+			}
+			refreshBest(other);
+			// only one opponent can have two roads meeting at this node
+			return;
+		}
+	}
+
+	int getLength(int seat) {
+		return best[seat];
+	}
+
+	int getHolder() {
+		return holder;
+	}
+
+	// the component e belongs to, 0 for an unowned edge
+	int componentOf(Edge e) {
+		return label[e.getId()];
+	}
+
+	int getComponentCount(int seat) {
+		return componentCount[seat];
+	}
+
+	// recomputes every component and length from the edge owners, e.g. after roads were placed without roadPlaced; leaves the award alone
+	void rebuild(Edge[] edges) {
+		Arrays.fill(label, 0);
+		Arrays.fill(componentLength, 0);
+		Arrays.fill(componentOwner, GameState.NO_SEAT);
+		Arrays.fill(componentCount, 0);
+		for (Edge e : edges) {
+			if (e.owner != GameState.NO_SEAT && label[e.getId()] == 0) relabel(e.owner, e);
+		}
+		Arrays.fill(best, 0);
+		for (int l = 1; l < componentOwner.length; l++) {
+			int a = componentOwner[l];
+			if (a != GameState.NO_SEAT) best[a] = Math.max(best[a], componentLength[l]);
+		}
+	}
+
+	// moves the award without touching victory points
+	void setHolder(int seat) {
+		holder = seat;
+	}
+
+	private int countOwned(int a, Node n) {
+		int count = 0;
+		for (Edge e : n.edges) {
+			if (e.owner == a) count++;
+		}
+		return count;
+	}
+
+	private void clearAdjacentComponents(int a, Node n, Edge placed) {
+		if (blocks(a, n)) return;
+		for (Edge e : n.edges) {
+			if (e != placed && e.owner == a && label[e.getId()] != 0) clear(label[e.getId()]);
+		}
+	}
+
+	private void clear(int l) {
+		if (componentOwner[l] != GameState.NO_SEAT) componentCount[componentOwner[l]]--;
+		componentLength[l] = 0;
+		componentOwner[l] = GameState.NO_SEAT;
+	}
+
+	// flood-fills the component containing start, labels it and caches its longest trail
+	private void relabel(int a, Edge start) {
+		ArrayDeque<Edge> queue = new ArrayDeque<>();
+		ArrayDeque<Edge> members = new ArrayDeque<>();
+		int lowest = start.getId();
+		label[start.getId()] = -1;
+		queue.add(start);
+		while (!queue.isEmpty()) {
+			Edge e = queue.poll();
+			members.add(e);
+			lowest = Math.min(lowest, e.getId());
+			enqueueAdjacent(a, e.getA(), queue);
+			enqueueAdjacent(a, e.getB(), queue);
+		}
+		int l = lowest + 1;
+		int longest = 0;
+		for (Edge e : members) label[e.getId()] = l;
+		// a longest trail can only start at an odd-degree node or an opponent building,
+		// unless the component is one closed circuit, in which case any node will do
+		boolean anyEndpoint = false;
+		for (Edge e : members) {
+			if (isTrailEnd(a, e.getA()) || isTrailEnd(a, e.getB())) {
+				anyEndpoint = true;
+				break;
+			}
+		}
+		if (!anyEndpoint) {
+			longest = walkFrom(a, start.getA(), l);
+		} else {
+			for (Edge e : members) {
+				longest = Math.max(longest, Math.max(walkFromEnd(a, e.getA(), l), walkFromEnd(a, e.getB(), l)));
+			}
+			for (Edge e : members) {
+				tried[e.getA().getId()] = false;
+				tried[e.getB().getId()] = false;
+			}
+		}
+		componentLength[l] = longest;
+		componentOwner[l] = a;
+		componentCount[a]++;
+	}
+
+	private void enqueueAdjacent(int a, Node n, ArrayDeque<Edge> queue) {
+		if (blocks(a, n)) return;
+		for (Edge adj : n.edges) {
+			if (adj.owner == a && label[adj.getId()] != -1) {
+				label[adj.getId()] = -1;
+				queue.add(adj);
+			}
+		}
+	}
+
+	private boolean isTrailEnd(int a, Node n) {
+		return blocks(a, n) || countOwned(a, n) % 2 == 1;
+	}
+
+	private int walkFromEnd(int a, Node n, int l) {
+		if (tried[n.getId()] || !isTrailEnd(a, n)) return 0;
+		tried[n.getId()] = true;
+		return walkFrom(a, n, l);
+	}
+
+	// longest trail in component l starting at n; a trail may start or end at an opponent building
+	private int walkFrom(int a, Node n, int l) {
+		int longest = 0;
+		for (Edge e : n.edges) {
+			// at an opponent building the agent's other roads belong to other components
+			if (label[e.getId()] != l) continue;
+			used[e.getId()] = true;
+			longest = Math.max(longest, 1 + walk(a, (e.getA() == n) ? e.getB() : e.getA()));
+			used[e.getId()] = false;
+		}
+		return longest;
+	}
+
+	// longest continuation from n over a's unused roads, without passing through opponent buildings
+	private int walk(int a, Node n) {
+		if (blocks(a, n)) return 0;
+		int longest = 0;
+		for (Edge e : n.edges) {
+			if (e.owner != a || used[e.getId()]) continue;
+			used[e.getId()] = true;
+			Node next = (e.getA() == n) ? e.getB() : e.getA();
+			longest = Math.max(longest, 1 + walk(a, next));
+			used[e.getId()] = false;
+		}
+		return longest;
+	}
+
+	private static boolean blocks(int a, Node n) {
+		return n.owner != GameState.NO_SEAT && n.owner != a;
+	}
+
+	private void refreshBest(int a) {
+		int length = 0;
+		for (int l = 1; l < componentOwner.length; l++) {
+			if (componentOwner[l] == a) length = Math.max(length, componentLength[l]);
+		}
+		best[a] = length;
+		updateAward();
+	}
+
+	private void updateAward() {
+		int top = 0;
+		int leader = GameState.NO_SEAT;
+		boolean tied = false;
+		for (int seat = 0; seat < best.length; seat++) {
+			int length = best[seat];
+			if (length > top) {
+				top = length;
+				leader = seat;
+				tied = false;
+			} else if (length == top) {
+				tied = true;
+			}
+		}
+		// the holder keeps the award while it is still at least tied for longest
+		if (holder != GameState.NO_SEAT && best[holder] >= MIN_LENGTH && best[holder] >= top) return;
+
+		int next = (top >= MIN_LENGTH && !tied) ? leader : GameState.NO_SEAT;
+		if (next == holder) return;
+		if (holder != GameState.NO_SEAT) state.victoryPoints[holder] -= AWARD_VP;
+		if (next != GameState.NO_SEAT) state.victoryPoints[next] += AWARD_VP;
+		holder = next;
+	}
+}
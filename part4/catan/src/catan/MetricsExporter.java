@@ -0,0 +1,174 @@
+package catan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes one row per agent per round (VP, cards per resource, pieces on the
+ * board and the size of the agent's last move list) to a file.
+ *
+ * CSV output starts with a header line naming the columns. Binary output is
+ * little-endian and columnar: a header of magic "CATM", version, column count
+ * and column names, followed by blocks of up to BLOCK_ROWS rows, each block
+ * being a row count and then every column's values in turn.
+ */
+public class MetricsExporter implements Closeable {
+	public enum Format { CSV, BINARY }
+
+	static final String[] COLUMNS = {
+		"round", "agent", "vp", "wood", "brick", "sheep", "wheat", "ore",
+		"settlements", "cities", "roads", "legal_moves"
+	};
+
+	private static final int MAGIC = 0x4D544143; // "CATM" little-endian
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int BLOCK_ROWS = 4096;
+
+	private final Path path;
+	private final Format format;
+	private final FileChannel channel;
+	private final WritableByteChannel out;
+	private final ByteBuffer buffer;
+	private final int[][] block;
+	private int blockRows;
+
+	public MetricsExporter(Path path, Format format, boolean compress) {
+		this.path = path;
+		this.format = format;
+		try {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			if (compress) {
+				OutputStream gz = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+				out = Channels.newChannel(gz);
+			} else {
+				out = channel;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to open metrics file: " + path, e);
+		}
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		block = (format == Format.BINARY) ? new int[COLUMNS.length][BLOCK_ROWS] : null;
+		writeHeader();
+	}
+
+	private void writeHeader() {
+		if (format == Format.CSV) {
+			for (int c = 0; c < COLUMNS.length; c++) {
+				if (c > 0) put((byte) ',');
+				putAscii(COLUMNS[c]);
+			}
+			put((byte) '\n');
+		} else {
+			ensure(12);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(COLUMNS.length);
+			for (String name : COLUMNS) {
+				byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+				ensure(2 + bytes.length);
+				buffer.putShort((short) bytes.length).put(bytes);
+			}
+		}
+	}
+
+	public void writeRound(int round, List<Agent> agents) {
+		for (Agent a : agents) {
+			ResourceHand hand = a.getHand();
+			writeRow(round, a.getId(), a.getVictoryPoints(),
+					hand.get(ResourceType.WOOD), hand.get(ResourceType.BRICK), hand.get(ResourceType.SHEEP),
+					hand.get(ResourceType.WHEAT), hand.get(ResourceType.ORE),
+					a.getSettlementCount(), a.getCityCount(), a.getRoadCount(), a.getLegalMoveCount());
+		}
+	}
+
+	private void writeRow(int... values) {
+		if (format == Format.CSV) {
+			for (int c = 0; c < values.length; c++) {
+				if (c > 0) put((byte) ',');
+				putDecimal(values[c]);
+			}
+			put((byte) '\n');
+		} else {
+			for (int c = 0; c < values.length; c++) block[c][blockRows] = values[c];
+			if (++blockRows == BLOCK_ROWS) flushBlock();
+		}
+	}
+
+	private void flushBlock() {
+		if (blockRows == 0) return;
+		ensure(4);
+		buffer.putInt(blockRows);
+		for (int[] column : block) {
+			for (int r = 0; r < blockRows; r++) {
+				ensure(4);
+				buffer.putInt(column[r]);
+			}
+		}
+		blockRows = 0;
+	}
+
+	private void putAscii(String s) {
+		for (int i = 0; i < s.length(); i++) put((byte) s.charAt(i));
+	}
+
+	private void putDecimal(int v) {
+		if (v < 0) {
+			put((byte) '-');
+			v = -v;
+		}
+		ensure(10);
+		int start = buffer.position();
+		do {
+			buffer.put((byte) ('0' + v % 10));
+			v /= 10;
+		} while (v != 0);
+		// digits were written least-significant first
+		for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+			byte t = buffer.get(i);
+			buffer.put(i, buffer.get(j));
+			buffer.put(j, t);
+		}
+	}
+
+	private void put(byte b) {
+		ensure(1);
+		buffer.put(b);
+	}
+
+	private void ensure(int bytes) {
+		if (buffer.remaining() < bytes) drain();
+	}
+
+	private void drain() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) out.write(buffer);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write metrics file: " + path, e);
+		}
+		buffer.clear();
+	}
+
+	public void close() {
+		if (format == Format.BINARY) flushBlock();
+		drain();
+		try {
+			out.close();
+			channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to close metrics file: " + path, e);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package catan;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Point-in-time copy of the simulator counters, as returned by
+ * {@link SimulatorMetrics#snapshot()}.
+ */
+public final class MetricsSnapshot {
+	private final double elapsedSeconds;
+	private final long gamesCompleted;
+	private final long turnsCompleted;
+	private final Map<String, Double> averageDecisionMicros;
+	private final double averageMovesPerDecision;
+	private final double distributeResourcesMillis;
+	private final double averageAllocatedBytesPerGame;
+
+	MetricsSnapshot(double elapsedSeconds, long gamesCompleted, long turnsCompleted,
+			Map<String, Double> averageDecisionMicros, double averageMovesPerDecision,
+			double distributeResourcesMillis, double averageAllocatedBytesPerGame) {
+		this.elapsedSeconds = elapsedSeconds;
+		this.gamesCompleted = gamesCompleted;
+		this.turnsCompleted = turnsCompleted;
+		this.averageDecisionMicros = Collections.unmodifiableMap(averageDecisionMicros);
+		this.averageMovesPerDecision = averageMovesPerDecision;
+		this.distributeResourcesMillis = distributeResourcesMillis;
+		this.averageAllocatedBytesPerGame = averageAllocatedBytesPerGame;
+	}
+
+	public double getElapsedSeconds() { return elapsedSeconds; }
+	public long getGamesCompleted() { return gamesCompleted; }
+	public long getTurnsCompleted() { return turnsCompleted; }
+	public double getGamesPerSecond() { return rate(gamesCompleted); }
+	public double getTurnsPerSecond() { return rate(turnsCompleted); }
+	public Map<String, Double> getAverageDecisionMicros() { return averageDecisionMicros; }
+	public double getAverageMovesPerDecision() { return averageMovesPerDecision; }
+	public double getDistributeResourcesMillis() { return distributeResourcesMillis; }
+	public double getAverageAllocatedBytesPerGame() { return averageAllocatedBytesPerGame; }
+
+	private double rate(long count) {
+		return elapsedSeconds > 0 ? count / elapsedSeconds : 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("games=%d (%.1f/s) turns=%d (%.1f/s) moves/decision=%.1f distribute=%.1fms alloc/game=%.0fB decisions(us)=%s",
+				gamesCompleted, getGamesPerSecond(), turnsCompleted, getTurnsPerSecond(),
+				averageMovesPerDecision, distributeResourcesMillis, averageAllocatedBytesPerGame,
+				averageDecisionMicros);
+	}
+}
@@ -1,15 +1,35 @@
 package catan;
 
 public class MoveValidator {
+	// pieces each player owns in the base game
+	public static final int MAX_ROADS = 15;
+	public static final int MAX_SETTLEMENTS = 5;
+	public static final int MAX_CITIES = 4;
+
 	public boolean canPlaceSettlement(Board b, Agent a, Node n) {
-		return b.getAvailableNodesForSettlement(a).contains(n) && a.canAfford(Cost.SETTLEMENT);
+		return a.getSettlementCount() < MAX_SETTLEMENTS
+				&& b.isSettlementCandidate(a, n) && a.canAfford(Cost.SETTLEMENT);
 	}
 
 	public boolean canPlaceRoad(Board b, Agent a, Edge e) {
-		return b.getAvailableEdgesForRoad(a).contains(e) && a.canAfford(Cost.ROAD);
+		return a.getRoadCount() < MAX_ROADS
+				&& b.isRoadCandidate(a, e) && a.canAfford(Cost.ROAD);
+	}
+
+	public boolean canTrade(Agent a, ResourceType give, ResourceType get) {
+		return a.canTrade(give, get);
+	}
+
+	public boolean canBuyDevelopmentCard(Board b, Agent a) {
+		return b.hasDevelopmentCards() && a.canAfford(Cost.DEVELOPMENT_CARD);
+	}
+
+	public boolean canPlayDevelopmentCard(Agent a, DevelopmentCardType card) {
+		return a.canPlayDevelopmentCard(card);
 	}
 
 	public boolean canUpgradeToCity(Board b, Agent a, Node n) {
-		return b.canUpgradeToCity(a, n) && a.canAfford(Cost.CITY);
+		return a.getCityCount() < MAX_CITIES
+				&& b.canUpgradeToCity(a, n) && a.canAfford(Cost.CITY);
 	}
 }
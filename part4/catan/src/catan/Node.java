@@ -5,18 +5,23 @@ import java.util.List;
 
 public class Node {
 	private int id;
-	Agent owner;
+	// seat of the owning player, or GameState.NO_SEAT
+	int owner;
 	BuildingType building;
+	HarborType harbor;
 	public List<Edge> edges;
+	List<Hex> hexes;
 
 	public Node(int id) {
 		this.id = id;
-		this.owner = null;
+		this.owner = GameState.NO_SEAT;
 		this.building = BuildingType.NONE;
 		this.edges = new ArrayList<>();
+		this.hexes = new ArrayList<>();
 	}
 
 	public int getId() { return id; }
-	public Agent getOwner() { return owner; }
+	public int getOwner() { return owner; }
 	public BuildingType getBuilding() { return building; }
+	public HarborType getHarbor() { return harbor; }
 }
@@ -0,0 +1,223 @@
+package catan;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Setup placements evaluated offline, stored in a memory-mapped file so a
+ * game looks its opening up instead of searching it. The file is an
+ * open-addressing hash table of 16-byte slots: a key, then the settlement
+ * node and road edge to play (-1 for no road). A lookup hashes the position
+ * and probes a slot or two of the mapping, with no parsing or allocation
+ * beyond the key itself.
+ *
+ * A key combines a hash of the layout (terrain and number token per hex,
+ * harbour per node) with the set of settlements already placed, taken in its canonical form
+ * under the layout's symmetries, so one entry serves every position that is
+ * an image of it. The stored move is in the canonical frame and is mapped
+ * back on lookup. Books are mapped on first use and shared by every game in
+ * the JVM; a game reads one through the opening_book config key.
+ *
+ * Usage: java -cp bin catan.OpeningBook config.txt games book.bin [node:edge ...]
+ * follows SetupAnalyzer's best placement from the given placements to the
+ * end of setup and adds each step to the book, keeping its other entries.
+ */
+public final class OpeningBook {
+	private static final int MAGIC = 0x4341544F; // "CATO"
+	// 2: harbours are part of the layout hash
+	private static final int VERSION = 2;
+	private static final int HEADER = 16;
+	private static final int SLOT = 16;
+
+	private static final Map<Path, OpeningBook> SHARED = new ConcurrentHashMap<>();
+
+	private final ByteBuffer table;
+	private final int mask;
+	private final int entries;
+
+	private OpeningBook(ByteBuffer table) {
+		if (table.capacity() < HEADER || table.getInt(0) != MAGIC) throw new IllegalArgumentException("Not an opening book");
+		if (table.getInt(4) != VERSION) throw new IllegalArgumentException("Unsupported opening book version: " + table.getInt(4));
+		int capacity = table.getInt(8);
+		if (Integer.bitCount(capacity) != 1 || table.capacity() != HEADER + (long) capacity * SLOT) {
+			throw new IllegalArgumentException("Corrupt opening book");
+		}
+		this.table = table;
+		this.mask = capacity - 1;
+		this.entries = table.getInt(12);
+	}
+
+	/** The book at path, mapped by the first caller and shared with every later one. */
+	public static OpeningBook shared(Path path) {
+		return SHARED.computeIfAbsent(path.toAbsolutePath().normalize(), OpeningBook::map);
+	}
+
+	private static OpeningBook map(Path path) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// the mapping stays valid after the channel is closed
+			return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not map opening book " + path, e);
+		}
+	}
+
+	public int size() { return entries; }
+
+	/**
+	 * The {node, edge} to place next on this board, edge -1 for no road, or
+	 * null when the position is not in the book.
+	 */
+	public int[] lookup(Board board) {
+		int[] symmetry = new int[1];
+		int[] move = find(key(board, symmetry));
+		if (move == null) return null;
+		// the inverse of the canonical symmetry takes the move back onto this board
+		BoardSymmetry symmetries = board.getSymmetry();
+		int s = symmetry[0];
+		int[] result = { -1, -1 };
+		for (int n = 0; n < board.getNodes().size(); n++) {
+			if (symmetries.mapNode(s, n) == move[0]) result[0] = n;
+		}
+		for (int e = 0; e < board.getEdges().size() && move[1] >= 0; e++) {
+			if (symmetries.mapEdge(s, e) == move[1]) result[1] = e;
+		}
+		return (result[0] >= 0) ? result : null;
+	}
+
+	// the move stored under key, in the canonical frame; a corrupt table with no empty slot is probed once round
+	private int[] find(long key) {
+		int i = (int) GameRandom.mix(key) & mask;
+		for (int probes = 0; probes <= mask; probes++, i = (i + 1) & mask) {
+			long k = table.getLong(HEADER + i * SLOT);
+			if (k == 0) return null;
+			if (k == key) return new int[] { table.getInt(HEADER + i * SLOT + 8), table.getInt(HEADER + i * SLOT + 12) };
+		}
+		return null;
+	}
+
+	/**
+	 * The book key of the position and, in symmetry[0], the symmetry that
+	 * takes its settlements to their canonical form: the sorted node ids
+	 * that come first lexicographically over all the layout's symmetries.
+	 */
+	static long key(Board board, int[] symmetry) {
+		long h = GameRandom.mix(board.getHexes().size() * 0x10000L + board.getNodes().size());
+		for (int i = 0; i < board.getHexes().size(); i++) {
+			Hex hex = board.getHexes().get(i);
+			h = GameRandom.mix(h ^ (hex.terrain.ordinal() * 16 + hex.numberToken));
+		}
+		// BoardSymmetry matches harbours too, so boards differing only in harbours must not share entries
+		for (int n = 0; n < board.getNodes().size(); n++) {
+			HarborType harbor = board.getNode(n).harbor;
+			h = GameRandom.mix(h ^ ((harbor != null) ? harbor.ordinal() + 1 : 0));
+		}
+		int count = 0;
+		int[] settlements = new int[board.getNodes().size()];
+		for (int n = 0; n < settlements.length; n++) {
+			if (board.getNode(n).building != BuildingType.NONE) settlements[count++] = n;
+		}
+		BoardSymmetry symmetries = board.getSymmetry();
+		int[] best = null;
+		int[] mapped = new int[count];
+		for (int s = 0; s < symmetries.size(); s++) {
+			for (int i = 0; i < count; i++) mapped[i] = symmetries.mapNode(s, settlements[i]);
+			Arrays.sort(mapped);
+			if (best == null || Arrays.compare(mapped, best) < 0) {
+				best = mapped.clone();
+				symmetry[0] = s;
+			}
+		}
+		h = GameRandom.mix(h ^ count);
+		for (int n : best) h = GameRandom.mix(h ^ n);
+		// 0 marks an empty slot
+		return (h == 0) ? 1 : h;
+	}
+
+	private Map<Long, int[]> entries() {
+		Map<Long, int[]> result = new HashMap<>();
+		for (int i = 0; i <= mask; i++) {
+			long k = table.getLong(HEADER + i * SLOT);
+			if (k != 0) result.put(k, new int[] { table.getInt(HEADER + i * SLOT + 8), table.getInt(HEADER + i * SLOT + 12) });
+		}
+		return result;
+	}
+
+	// writes the entries as a table at most half full, replacing the file atomically
+	private static void write(Path path, Map<Long, int[]> entries) throws IOException {
+		int capacity = Integer.highestOneBit(Math.max(8, entries.size()) * 2 - 1) << 1;
+		long[] keys = new long[capacity];
+		int[][] moves = new int[capacity][];
+		for (Map.Entry<Long, int[]> entry : entries.entrySet()) {
+			int i = (int) GameRandom.mix(entry.getKey()) & (capacity - 1);
+			while (keys[i] != 0) i = (i + 1) & (capacity - 1);
+			keys[i] = entry.getKey();
+			moves[i] = entry.getValue();
+		}
+		Path dir = path.toAbsolutePath().getParent();
+		Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(capacity);
+			out.writeInt(entries.size());
+			for (int i = 0; i < capacity; i++) {
+				out.writeLong(keys[i]);
+				out.writeInt((moves[i] != null) ? moves[i][0] : 0);
+				out.writeInt((moves[i] != null) ? moves[i][1] : 0);
+			}
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: java -cp bin catan.OpeningBook <config> <games> <book> [node:edge ...]");
+			System.exit(2);
+		}
+		String configText = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+		int games = Integer.parseInt(args[1]);
+		Path path = Paths.get(args[2]);
+		Map<Long, int[]> entries = Files.exists(path) ? new OpeningBook(readAll(path)).entries() : new HashMap<>();
+		List<int[]> placed = new ArrayList<>();
+		for (int i = 3; i < args.length; i++) {
+			String[] parts = args[i].split(":");
+			placed.add(new int[] { Integer.parseInt(parts[0]), (parts.length > 1) ? Integer.parseInt(parts[1]) : -1 });
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		int placements = 2 * GameConfig.parse(configText).getPlayers();
+		while (placed.size() < placements) {
+			SetupAnalyzer analyzer = new SetupAnalyzer(configText, placed.toArray(new int[0][]), games);
+			SetupAnalyzer.Result best = analyzer.run(threads).get(0);
+			Board board = analyzer.getBoard();
+			int[] symmetry = new int[1];
+			long key = key(board, symmetry);
+			int edge = (best.getEdge() >= 0) ? board.getSymmetry().mapEdge(symmetry[0], best.getEdge()) : -1;
+			entries.put(key, new int[] { board.getSymmetry().mapNode(symmetry[0], best.getNode()), edge });
+			System.out.printf("P%d: %d:%d, win rate %.4f%n", analyzer.getSeat(), best.getNode(), best.getEdge(), best.getWinRate());
+			placed.add(new int[] { best.getNode(), best.getEdge() });
+		}
+		write(path, entries);
+		System.out.println(path + ": " + entries.size() + " positions");
+	}
+
+	// the whole file on the heap, so the builder never replaces a file it has mapped
+	private static ByteBuffer readAll(Path path) throws IOException {
+		return ByteBuffer.wrap(Files.readAllBytes(path));
+	}
+}
@@ -0,0 +1,28 @@
+package catan;
+
+public class PlayKnightAction extends Action {
+	private Hex target;
+	private Agent victim;
+
+	public PlayKnightAction(Hex target, Agent victim) {
+		this.target = target;
+		this.victim = victim;
+	}
+
+	public boolean execute(Board b, Agent a) {
+		if (!a.playDevelopmentCard(DevelopmentCardType.KNIGHT)) return false;
+		b.rob(a, target, victim);
+		b.knightPlayed(a);
+		return true;
+	}
+
+	@Override
+	public boolean isLegal(Board b, Agent a, MoveValidator rules) {
+		return rules.canPlayDevelopmentCard(a, DevelopmentCardType.KNIGHT) && target != null && target != b.getRobberHex();
+	}
+
+	public String describe() {
+		return "Played knight, moved robber to hex " + target.getId()
+				+ (victim != null ? " and robbed P" + victim.getId() : "");
+	}
+}
@@ -0,0 +1,33 @@
+package catan;
+
+public class PlayMonopolyAction extends Action {
+	private ResourceType resource;
+	private int taken;
+
+	public PlayMonopolyAction(ResourceType resource) {
+		this.resource = resource;
+	}
+
+	public boolean execute(Board b, Agent a) {
+		if (!a.playDevelopmentCard(DevelopmentCardType.MONOPOLY)) return false;
+		taken = 0;
+		for (Agent other : b.getPlayers()) {
+			if (other == a) continue;
+			int count = other.getHand().get(resource);
+			if (count == 0) continue;
+			other.getHand().remove(resource, count);
+			taken += count;
+		}
+		a.addResource(resource, taken);
+		return true;
+	}
+
+	@Override
+	public boolean isLegal(Board b, Agent a, MoveValidator rules) {
+		return rules.canPlayDevelopmentCard(a, DevelopmentCardType.MONOPOLY);
+	}
+
+	public String describe() {
+		return "Played monopoly on " + resource + " and took " + taken;
+	}
+}
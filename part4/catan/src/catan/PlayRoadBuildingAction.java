@@ -0,0 +1,32 @@
+package catan;
+
+public class PlayRoadBuildingAction extends Action {
+	private Edge first;
+	private Edge second;
+
+	// second may be null when only one road can be placed
+	public PlayRoadBuildingAction(Edge first, Edge second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	public boolean execute(Board b, Agent a) {
+		if (!a.playDevelopmentCard(DevelopmentCardType.ROAD_BUILDING)) return false;
+		b.placeRoad(a, first);
+		if (second != null && second.owner == GameState.NO_SEAT && a.getRoadCount() < MoveValidator.MAX_ROADS) {
+			b.placeRoad(a, second);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isLegal(Board b, Agent a, MoveValidator rules) {
+		return rules.canPlayDevelopmentCard(a, DevelopmentCardType.ROAD_BUILDING)
+				&& a.getRoadCount() < MoveValidator.MAX_ROADS && b.isRoadCandidate(a, first);
+	}
+
+	public String describe() {
+		return "Played road building at edge " + first.getId()
+				+ (second != null ? " and edge " + second.getId() : "");
+	}
+}
@@ -0,0 +1,27 @@
+package catan;
+
+public class PlayYearOfPlentyAction extends Action {
+	private ResourceType first;
+	private ResourceType second;
+
+	public PlayYearOfPlentyAction(ResourceType first, ResourceType second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	public boolean execute(Board b, Agent a) {
+		if (!a.playDevelopmentCard(DevelopmentCardType.YEAR_OF_PLENTY)) return false;
+		a.addResource(first, 1);
+		a.addResource(second, 1);
+		return true;
+	}
+
+	@Override
+	public boolean isLegal(Board b, Agent a, MoveValidator rules) {
+		return rules.canPlayDevelopmentCard(a, DevelopmentCardType.YEAR_OF_PLENTY);
+	}
+
+	public String describe() {
+		return "Played year of plenty for " + first + " and " + second;
+	}
+}
@@ -2,18 +2,28 @@ package catan;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.security.SecureRandom;
 
 public class RandomAgent extends Agent {
-	private SecureRandom rng;
+	private Random rng;
 	private MoveValidator validator;
 
 	public RandomAgent(int id, MoveValidator validator) {
+		this(id, validator, new SecureRandom());
+	}
+
+	public RandomAgent(int id, MoveValidator validator, Random rng) {
 		initAgent(id);
-		this.rng = new SecureRandom();
+		this.rng = rng;
 		this.validator = validator;
 	}
 
+	@Override
+	Random getRandom() {
+		return rng;
+	}
+
 	public Action chooseAction(Board b) {
 		List<Action> possible = new ArrayList<>();
 
@@ -35,7 +45,98 @@ public class RandomAgent extends Agent {
 			}
 		}
 
+		if (validator.canBuyDevelopmentCard(b, this)) {
+			possible.add(new BuyDevelopmentCardAction());
+		}
+		addDevelopmentCardPlays(b, possible);
+
+		if (possible.isEmpty()) addTradeTowards(b, possible);
+
+		setLegalMoveCount(possible.size());
 		if (possible.isEmpty()) return null;
 		return possible.get(rng.nextInt(possible.size()));
 	}
+
+	// a uniformly random affordable build at each step, as chooseAction would pick among builds
+	@Override
+	public List<Action> planHandLimitBuilds(Board b) {
+		BuildPlanner planner = new BuildPlanner(b, this);
+		BuildPlanner.Build[] builds = BuildPlanner.Build.values();
+		int[] counts = new int[builds.length];
+		while (planner.isOverLimit()) {
+			int total = 0;
+			for (int i = 0; i < builds.length; i++) total += counts[i] = planner.count(builds[i]);
+			if (total == 0) break;
+			int pick = rng.nextInt(total);
+			int i = 0;
+			while (pick >= counts[i]) pick -= counts[i++];
+			planner.take(builds[i], pick);
+		}
+		return planner.getPlan();
+	}
+
+	private void addDevelopmentCardPlays(Board b, List<Action> possible) {
+		if (validator.canPlayDevelopmentCard(this, DevelopmentCardType.KNIGHT)) {
+			Hex target = chooseRobberHex(b);
+			List<Agent> victims = b.getRobberVictims(this, target);
+			possible.add(new PlayKnightAction(target, victims.isEmpty() ? null : chooseVictim(b, victims)));
+		}
+		if (validator.canPlayDevelopmentCard(this, DevelopmentCardType.ROAD_BUILDING)
+				&& getRoadCount() < MoveValidator.MAX_ROADS) {
+			List<Edge> edges = b.getAvailableEdgesForRoad(this);
+			if (!edges.isEmpty()) {
+				Edge first = edges.remove(rng.nextInt(edges.size()));
+				Edge second = edges.isEmpty() ? null : edges.get(rng.nextInt(edges.size()));
+				possible.add(new PlayRoadBuildingAction(first, second));
+			}
+		}
+		ResourceType[] types = ResourceType.values();
+		if (validator.canPlayDevelopmentCard(this, DevelopmentCardType.YEAR_OF_PLENTY)) {
+			possible.add(new PlayYearOfPlentyAction(types[rng.nextInt(types.length)], types[rng.nextInt(types.length)]));
+		}
+		if (validator.canPlayDevelopmentCard(this, DevelopmentCardType.MONOPOLY)) {
+			possible.add(new PlayMonopolyAction(types[rng.nextInt(types.length)]));
+		}
+	}
+
+	// when nothing is buildable, offer the first trade towards each build that has a free spot
+	private void addTradeTowards(Board b, List<Action> possible) {
+		if (getSettlementCount() < MoveValidator.MAX_SETTLEMENTS && !b.getAvailableNodesForSettlement(this).isEmpty()) {
+			addTrade(Cost.SETTLEMENT, possible);
+		}
+		if (getRoadCount() < MoveValidator.MAX_ROADS && !b.getAvailableEdgesForRoad(this).isEmpty()) {
+			addTrade(Cost.ROAD, possible);
+		}
+		if (getCityCount() < MoveValidator.MAX_CITIES && getSettlementCount() > 0) {
+			addTrade(Cost.CITY, possible);
+		}
+	}
+
+	private void addTrade(Cost c, List<Action> possible) {
+		int[] trade = Trading.nextTrade(getHand().counts(), tradeRates(), c.amounts());
+		if (trade == null) return;
+		ResourceType give = ResourceType.values()[trade[0]];
+		ResourceType get = ResourceType.values()[trade[1]];
+		if (validator.canTrade(this, give, get)) possible.add(new TradeAction(give, get));
+	}
+
+	public ResourceType chooseDiscard(Board b) {
+		int total = getHand().getTotalCards();
+		int pick = rng.nextInt(total);
+		for (ResourceType r : ResourceType.values()) {
+			pick -= getHand().get(r);
+			if (pick < 0) return r;
+		}
+		return null;
+	}
+
+	public Hex chooseRobberHex(Board b) {
+		List<Hex> choices = new ArrayList<>(b.getHexes().values());
+		choices.remove(b.getRobberHex());
+		return choices.get(rng.nextInt(choices.size()));
+	}
+
+	public Agent chooseVictim(Board b, List<Agent> candidates) {
+		return candidates.get(rng.nextInt(candidates.size()));
+	}
 }
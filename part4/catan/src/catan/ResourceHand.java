@@ -1,33 +1,38 @@
 package catan;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public class ResourceHand {
-	private Map<ResourceType, Integer> counts;
+	// a view of one seat's row of GameState.hands, indexed by ResourceType.ordinal()
+	private GameState state;
+	private int seat;
 
 	public ResourceHand() {
-		counts = new HashMap<>();
-		for (ResourceType r : ResourceType.values()) {
-			counts.put(r, 0);
-		}
+		this(new GameState(1), 0);
+	}
+
+	ResourceHand(GameState state, int seat) {
+		this.state = state;
+		this.seat = seat;
 	}
 
 	public int getTotalCards() {
 		int total = 0;
-		for (int v : counts.values()) total += v;
+		for (int c : state.hands[seat]) total += c;
 		return total;
 	}
 
 	public void add(ResourceType r, int amount) {
-		counts.put(r, counts.get(r) + amount);
+		state.addCards(seat, r.ordinal(), amount);
 	}
 
 	public void remove(ResourceType r, int amount) {
-		counts.put(r, counts.get(r) - amount);
+		state.addCards(seat, r.ordinal(), -amount);
 	}
 
 	public int get(ResourceType r) {
-		return counts.get(r);
+		return state.hands[seat][r.ordinal()];
+	}
+
+	int[] counts() {
+		return state.hands[seat];
 	}
 }
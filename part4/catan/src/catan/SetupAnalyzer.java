@@ -0,0 +1,244 @@
+package catan;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Ranks the setup placements open to the next seat in snake order, given
+ * the placements made before it. Every legal settlement and road pair is
+ * played out in the same number of games, the remaining setup and the rest
+ * of each game being random, and ranked by the seat's win rate.
+ *
+ * Game i of every candidate uses the same seed, so candidates are compared
+ * on common dice and common opponent choices and the differences between
+ * them are much less noisy than their separate win rates. The layout is
+ * fixed for the whole analysis: the map file, or one generated from the seed for
+ * random maps and generated boards. Placements that a symmetry of the board
+ * maps onto each other, with every earlier placement left in place, are
+ * played once. Games are spread over the cores with fork-join.
+ *
+ * Usage: java -cp bin catan.SetupAnalyzer config.txt games [node:edge ...] [threads]
+ * where the node:edge pairs are the earlier placements in snake order.
+ */
+public class SetupAnalyzer {
+	// games played per fork-join leaf
+	private static final int LEAF_GAMES = 4;
+
+	private final String configText;
+	private final int[][] earlier;
+	private final int games;
+	private final long seed;
+	private final int seat;
+	private final Board board;
+	private final TerrainType[] terrains;
+	private final int[] tokens;
+
+	/** One candidate placement and how the seat fared with it. */
+	public static final class Result {
+		private final int node;
+		private final int edge;
+		private final int games;
+		private int wins;
+		private long vp;
+
+		Result(int node, int edge, int games) {
+			this.node = node;
+			this.edge = edge;
+			this.games = games;
+		}
+
+		public int getNode() { return node; }
+		// -1 when the node had no free edge for a road
+		public int getEdge() { return edge; }
+		public double getWinRate() { return (double) wins / games; }
+		public double getAverageVp() { return (double) vp / games; }
+	}
+
+	public SetupAnalyzer(String configText, int[][] earlier, int games) {
+		this.configText = configText;
+		this.earlier = earlier;
+		this.games = games;
+		GameConfig config = GameConfig.parse(configText);
+		int players = config.getPlayers();
+		if (earlier.length >= 2 * players) throw new IllegalArgumentException("Every setup placement is already made");
+		this.seat = (earlier.length < players) ? earlier.length : 2 * players - 1 - earlier.length;
+		this.seed = config.isSeeded() ? config.getSeed() : new SecureRandom().nextLong();
+
+		// the position the candidates are placed into, built as the simulator would
+		CatanSimulator sim = new CatanSimulator(config);
+		sim.setupBoard();
+		board = sim.getBoard();
+		if (config.isRandomMap() || config.createTopology() != null) {
+			BoardGenerator generator = new BoardGenerator(board, seed);
+			generator.setMaxPipSpread(config.getMapPipSpread());
+			generator.generate();
+			generator.apply(board);
+		}
+		terrains = new TerrainType[board.getHexes().size()];
+		tokens = new int[terrains.length];
+		for (int h = 0; h < terrains.length; h++) {
+			terrains[h] = board.getHexes().get(h).terrain;
+			tokens[h] = board.getHexes().get(h).numberToken;
+		}
+		List<Agent> agents = sim.getAgents();
+		board.setPlayers(agents);
+		for (int i = 0; i < earlier.length; i++) {
+			Agent a = agents.get((i < players) ? i : 2 * players - 1 - i);
+			Node n = board.getNode(earlier[i][0]);
+			if (!board.isSetupCandidate(n)) throw new IllegalArgumentException("Node " + earlier[i][0] + " is not open for a settlement");
+			board.placeSettlement(a, n);
+			if (earlier[i][1] < 0) continue;
+			Edge e = board.getEdge(earlier[i][1]);
+			if (!n.edges.contains(e) || e.owner != GameState.NO_SEAT) throw new IllegalArgumentException("Edge " + earlier[i][1] + " is not a free edge of node " + earlier[i][0]);
+			board.placeRoad(a, e);
+		}
+	}
+
+	// the seat whose placement is analysed
+	public int getSeat() { return seat; }
+
+	public Board getBoard() { return board; }
+
+	/** Legal {node, edge} placements for the seat, one per class of symmetric placements. */
+	public List<int[]> candidates() {
+		BoardSymmetry symmetry = board.getSymmetry();
+		List<Integer> fixing = new ArrayList<>();
+		for (int s = 0; s < symmetry.size(); s++) {
+			boolean fixes = true;
+			for (int[] p : earlier) {
+				fixes &= symmetry.mapNode(s, p[0]) == p[0] && (p[1] < 0 || symmetry.mapEdge(s, p[1]) == p[1]);
+			}
+			if (fixes) fixing.add(s);
+		}
+		List<int[]> result = new ArrayList<>();
+		for (Node n : board.getAvailableNodesForSetup(null)) {
+			List<Integer> edges = new ArrayList<>();
+			for (Edge e : n.edges) {
+				if (e.owner == GameState.NO_SEAT) edges.add(e.getId());
+			}
+			if (edges.isEmpty()) edges.add(-1);
+			for (int edge : edges) {
+				if (isCanonical(symmetry, fixing, n.getId(), edge)) result.add(new int[] { n.getId(), edge });
+			}
+		}
+		return result;
+	}
+
+	// whether no symmetry maps the placement to one that sorts before it
+	private static boolean isCanonical(BoardSymmetry symmetry, List<Integer> fixing, int node, int edge) {
+		for (int s : fixing) {
+			int n = symmetry.mapNode(s, node);
+			int e = (edge < 0) ? -1 : symmetry.mapEdge(s, edge);
+			if (n < node || (n == node && e < edge)) return false;
+		}
+		return true;
+	}
+
+	/** Plays every candidate and returns the results, best win rate first. */
+	public List<Result> run(int threads) {
+		List<int[]> candidates = candidates();
+		List<Result> results = new ArrayList<>();
+		for (int[] c : candidates) results.add(new Result(c[0], c[1], games));
+		int[] winners = new int[candidates.size() * games];
+		int[] vps = new int[winners.length];
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new Games(candidates, winners, vps, 0, winners.length));
+		} finally {
+			pool.shutdown();
+		}
+		for (int j = 0; j < winners.length; j++) {
+			Result r = results.get(j / games);
+			if (winners[j] == seat) r.wins++;
+			r.vp += vps[j];
+		}
+		results.sort(Comparator.comparingDouble(Result::getWinRate).thenComparingDouble(Result::getAverageVp).reversed());
+		return results;
+	}
+
+	// game j is game j % games of candidate j / games
+	private final class Games extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<int[]> candidates;
+		private final int[] winners;
+		private final int[] vps;
+		private final int from;
+		private final int to;
+
+		Games(List<int[]> candidates, int[] winners, int[] vps, int from, int to) {
+			this.candidates = candidates;
+			this.winners = winners;
+			this.vps = vps;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > LEAF_GAMES) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Games(candidates, winners, vps, from, mid), new Games(candidates, winners, vps, mid, to));
+				return;
+			}
+			for (int j = from; j < to; j++) {
+				GameConfig config = GameConfig.parse(configText);
+				config.set("seed", Long.toString(GameRandom.mix(seed + j % games)));
+				CatanSimulator sim = new CatanSimulator(config);
+				int[][] placements = new int[earlier.length + 1][];
+				System.arraycopy(earlier, 0, placements, 0, earlier.length);
+				placements[earlier.length] = candidates.get(j / games);
+				sim.setLayout(terrains, tokens);
+				sim.setSetupPlacements(placements);
+				sim.runSimulation();
+				int[] result = sim.getResult();
+				winners[j] = result[0];
+				vps[j] = result[2 + seat];
+			}
+		}
+	}
+
+	// the number and resource of each producing hex around the node, e.g. "6 WHEAT, 8 ORE"
+	private String describe(int node) {
+		StringBuilder sb = new StringBuilder();
+		for (Hex hex : board.getNode(node).hexes) {
+			if (hex.resource == null) continue;
+			if (sb.length() > 0) sb.append(", ");
+			sb.append(hex.numberToken).append(' ').append(hex.resource);
+		}
+		return sb.toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: java -cp bin catan.SetupAnalyzer <config> <games> [node:edge ...] [threads]");
+			System.exit(2);
+		}
+		String configText = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+		int end = args.length;
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (end > 2 && !args[end - 1].contains(":")) threads = Integer.parseInt(args[--end]);
+		int[][] earlier = new int[end - 2][];
+		for (int i = 2; i < end; i++) {
+			String[] parts = args[i].split(":");
+			earlier[i - 2] = new int[] { Integer.parseInt(parts[0]), (parts.length > 1) ? Integer.parseInt(parts[1]) : -1 };
+		}
+		SetupAnalyzer analyzer = new SetupAnalyzer(configText, earlier, Integer.parseInt(args[1]));
+		List<Result> results = analyzer.run(threads);
+		System.out.println("Placements for P" + analyzer.getSeat() + ", " + args[1] + " games each:");
+		System.out.println("rank  node  edge  win rate  avg VP  hexes");
+		for (int i = 0; i < results.size(); i++) {
+			Result r = results.get(i);
+			System.out.printf("%4d  %4d  %4d  %8.4f  %6.3f  %s%n", i + 1, r.getNode(), r.getEdge(),
+					r.getWinRate(), r.getAverageVp(), analyzer.describe(r.getNode()));
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package catan;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide throughput counters shared by every simulator that has
+ * "jmx: true" in its config. Counters are LongAdders so simulators running on
+ * different threads do not contend on them.
+ */
+public final class SimulatorMetrics implements SimulatorMetricsMXBean {
+	static final String OBJECT_NAME = "catan:type=SimulatorMetrics";
+
+	private static volatile SimulatorMetrics instance;
+
+	private final LongAdder games = new LongAdder();
+	private final LongAdder turns = new LongAdder();
+	private final LongAdder decisions = new LongAdder();
+	private final LongAdder movesGenerated = new LongAdder();
+	private final LongAdder distributeNanos = new LongAdder();
+	private final LongAdder allocatedBytes = new LongAdder();
+	private final Map<String, Timer> decisionTimers = new ConcurrentHashMap<>();
+	private final com.sun.management.ThreadMXBean allocation;
+	private volatile long startNanos = System.nanoTime();
+
+	private static final class Timer {
+		final LongAdder count = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+	}
+
+	private SimulatorMetrics() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		allocation = (threads instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported())
+				? (com.sun.management.ThreadMXBean) threads : null;
+	}
+
+	public static SimulatorMetrics global() {
+		SimulatorMetrics m = instance;
+		if (m == null) {
+			synchronized (SimulatorMetrics.class) {
+				m = instance;
+				if (m == null) {
+					m = new SimulatorMetrics();
+					register(m);
+					instance = m;
+				}
+			}
+		}
+		return m;
+	}
+
+	private static void register(SimulatorMetrics m) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) server.registerMBean(m, name);
+		} catch (JMException e) {
+			System.err.println("Warning: could not register " + OBJECT_NAME + " (" + e.getMessage() + ")");
+		}
+	}
+
+	// allocation counter for the calling thread, or -1 when the JVM cannot report it
+	long threadAllocatedBytes() {
+		return allocation != null ? allocation.getCurrentThreadAllocatedBytes() : -1;
+	}
+
+	void recordGame(long allocatedSinceStart) {
+		games.increment();
+		if (allocatedSinceStart > 0) allocatedBytes.add(allocatedSinceStart);
+	}
+
+	void recordTurn() {
+		turns.increment();
+	}
+
+	void recordDecision(Agent a, long nanos) {
+		Timer t = decisionTimers.computeIfAbsent(a.getClass().getSimpleName(), k -> new Timer());
+		t.count.increment();
+		t.nanos.add(nanos);
+		decisions.increment();
+		movesGenerated.add(a.getLegalMoveCount());
+	}
+
+	void recordDistribute(long nanos) {
+		distributeNanos.add(nanos);
+	}
+
+	public MetricsSnapshot snapshot() {
+		return new MetricsSnapshot((System.nanoTime() - startNanos) / 1e9, games.sum(), turns.sum(),
+				getAverageDecisionMicros(), getAverageMovesPerDecision(), getDistributeResourcesMillis(),
+				getAverageAllocatedBytesPerGame());
+	}
+
+	public long getGamesCompleted() { return games.sum(); }
+	public long getTurnsCompleted() { return turns.sum(); }
+	public double getGamesPerSecond() { return snapshot().getGamesPerSecond(); }
+	public double getTurnsPerSecond() { return snapshot().getTurnsPerSecond(); }
+
+	public Map<String, Double> getAverageDecisionMicros() {
+		Map<String, Double> result = new TreeMap<>();
+		for (Map.Entry<String, Timer> e : decisionTimers.entrySet()) {
+			long count = e.getValue().count.sum();
+			if (count > 0) result.put(e.getKey(), e.getValue().nanos.sum() / 1e3 / count);
+		}
+		return result;
+	}
+
+	public double getAverageMovesPerDecision() {
+		long d = decisions.sum();
+		return d > 0 ? (double) movesGenerated.sum() / d : 0;
+	}
+
+	public double getDistributeResourcesMillis() {
+		return distributeNanos.sum() / 1e6;
+	}
+
+	public double getAverageAllocatedBytesPerGame() {
+		long g = games.sum();
+		return g > 0 ? (double) allocatedBytes.sum() / g : 0;
+	}
+
+	public void reset() {
+		games.reset();
+		turns.reset();
+		decisions.reset();
+		movesGenerated.reset();
+		distributeNanos.reset();
+		allocatedBytes.reset();
+		decisionTimers.clear();
+		startNanos = System.nanoTime();
+	}
+}
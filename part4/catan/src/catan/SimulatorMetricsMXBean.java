@@ -0,0 +1,19 @@
+package catan;
+
+import java.util.Map;
+
+/**
+ * Management interface for {@link SimulatorMetrics}, visible in JConsole or
+ * any JMX client under catan:type=SimulatorMetrics.
+ */
+public interface SimulatorMetricsMXBean {
+	long getGamesCompleted();
+	long getTurnsCompleted();
+	double getGamesPerSecond();
+	double getTurnsPerSecond();
+	Map<String, Double> getAverageDecisionMicros();
+	double getAverageMovesPerDecision();
+	double getDistributeResourcesMillis();
+	double getAverageAllocatedBytesPerGame();
+	void reset();
+}
@@ -0,0 +1,271 @@
+package catan;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams live game events to browsers and other clients as server-sent
+ * events on http://localhost:port/events, so games from a batch can be
+ * watched while it runs. Each event is a JSON object with the game's number
+ * in the batch: game (the board when setup starts), setup, roll, robber,
+ * action, score (VP after each round) and end.
+ *
+ * The games never wait for a viewer. Every client has a bounded queue that
+ * the game threads offer to without blocking; when it is full the event is
+ * dropped and the client is told how many it missed. Scores are coalesced
+ * instead, the latest per game replacing any not yet sent, so a slow viewer
+ * still sees current standings. They travel apart from the other events, so
+ * a score is not ordered relative to a game's rolls and actions; only its
+ * last score is sent before its end event. With no client connected a
+ * watched game builds no events at all.
+ *
+ * Enabled by the spectator_port config key, one server per port in the JVM,
+ * watching every game or every spectator_sample-th. The server only listens
+ * on the loopback address and runs on daemon threads, so it lives as long
+ * as the games do.
+ *
+ *   curl -N http://localhost:8787/events
+ */
+public final class SpectatorServer {
+	private static final int QUEUE_CAPACITY = 1024;
+	private static final int MAX_CLIENTS = 16;
+	private static final long KEEPALIVE_MILLIS = 15_000;
+
+	private static final Map<Integer, SpectatorServer> SHARED = new ConcurrentHashMap<>();
+
+	private final HttpServer server;
+	private final List<Client> clients = new CopyOnWriteArrayList<>();
+	private final AtomicLong games = new AtomicLong();
+
+	private SpectatorServer(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/events", this::stream);
+		ExecutorService pool = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "spectator");
+			t.setDaemon(true);
+			return t;
+		});
+		server.setExecutor(pool);
+	}
+
+	/** The server on port, started by the first caller. */
+	public static SpectatorServer shared(int port) {
+		return SHARED.computeIfAbsent(port, SpectatorServer::start);
+	}
+
+	private static SpectatorServer start(int port) {
+		SpectatorServer[] result = new SpectatorServer[1];
+		IOException[] failure = new IOException[1];
+		// the dispatcher thread inherits daemon status from the thread that starts the server
+		Thread starter = new Thread(() -> {
+			try {
+				result[0] = new SpectatorServer(port);
+				result[0].server.start();
+			} catch (IOException e) {
+				failure[0] = e;
+			}
+		}, "spectator-start");
+		starter.setDaemon(true);
+		starter.start();
+		try {
+			starter.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while starting the spectator server", e);
+		}
+		if (failure[0] != null) throw new UncheckedIOException("Could not start the spectator server on port " + port, failure[0]);
+		return result[0];
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/** A listener for the next game, or null if the game is not among every sample-th one watched. */
+	public GameListener watch(int sample) {
+		long game = games.getAndIncrement();
+		return (game % Math.max(1, sample) == 0) ? new Watcher(game) : null;
+	}
+
+	private void publish(String type, String json) {
+		for (Client c : clients) c.offer(type, json);
+	}
+
+	private void publishScore(long game, String json) {
+		for (Client c : clients) c.offerScore(game, json);
+	}
+
+	private void publishEnd(long game, String json) {
+		for (Client c : clients) c.offerEnd(game, json);
+	}
+
+	// runs on a pool thread for as long as the client stays connected
+	private void stream(HttpExchange exchange) throws IOException {
+		if (clients.size() >= MAX_CLIENTS) {
+			exchange.sendResponseHeaders(503, -1);
+			exchange.close();
+			return;
+		}
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+		exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+		exchange.sendResponseHeaders(200, 0);
+		Client client = new Client();
+		clients.add(client);
+		try (OutputStream out = exchange.getResponseBody()) {
+			client.send(out);
+		} catch (IOException e) {
+			// the client went away
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			clients.remove(client);
+			exchange.close();
+		}
+	}
+
+	private static final class Client {
+		private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		private final AtomicInteger dropped = new AtomicInteger();
+		// latest unsent score per game
+		private final Map<Long, String> scores = new ConcurrentHashMap<>();
+
+		void offer(String type, String json) {
+			if (!queue.offer(event(type, json))) dropped.incrementAndGet();
+		}
+
+		// the game's pending score and its end as one entry, so the score cannot follow the end
+		void offerEnd(long game, String json) {
+			String score = scores.remove(game);
+			if (score == null) {
+				offer("end", json);
+			} else if (!queue.offer(event("score", score) + event("end", json))) {
+				// the final standings are kept; only the end is lost
+				scores.put(game, score);
+				dropped.incrementAndGet();
+			}
+		}
+
+		private static String event(String type, String json) {
+			return "event: " + type + "\ndata: " + json + "\n\n";
+		}
+
+		// scores from at most QUEUE_CAPACITY games wait at once; a score for yet another game counts as dropped
+		void offerScore(long game, String json) {
+			if (scores.size() < QUEUE_CAPACITY || scores.containsKey(game)) scores.put(game, json);
+			else dropped.incrementAndGet();
+		}
+
+		void send(OutputStream out) throws IOException, InterruptedException {
+			long lastWrite = System.currentTimeMillis();
+			while (true) {
+				StringBuilder sb = new StringBuilder();
+				String event = queue.poll(250, TimeUnit.MILLISECONDS);
+				if (event != null) {
+					// at most a queue's worth per write, or busy games could keep the batch growing
+					List<String> batch = new ArrayList<>();
+					batch.add(event);
+					queue.drainTo(batch, QUEUE_CAPACITY - 1);
+					for (String e : batch) sb.append(e);
+				}
+				for (Long game : new ArrayList<>(scores.keySet())) {
+					String score = scores.remove(game);
+					if (score != null) sb.append(event("score", score));
+				}
+				int missed = dropped.getAndSet(0);
+				if (missed > 0) sb.append("event: dropped\ndata: {\"events\":").append(missed).append("}\n\n");
+				// a comment now and then, so a closed connection is noticed
+				if (sb.length() == 0 && System.currentTimeMillis() - lastWrite > KEEPALIVE_MILLIS) sb.append(": keepalive\n\n");
+				if (sb.length() == 0) continue;
+				out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+				out.flush();
+				lastWrite = System.currentTimeMillis();
+			}
+		}
+	}
+
+	// one watched game; every callback returns at once when nobody is connected
+	private final class Watcher implements GameListener {
+		private final long game;
+
+		Watcher(long game) {
+			this.game = game;
+		}
+
+		private StringBuilder event(int round, int seat) {
+			StringBuilder sb = new StringBuilder("{\"game\":").append(game);
+			if (round >= 0) sb.append(",\"round\":").append(round);
+			if (seat >= 0) sb.append(",\"seat\":").append(seat);
+			return sb;
+		}
+
+		@Override
+		public void onGameStart(Board board) {
+			if (clients.isEmpty()) return;
+			StringBuilder sb = event(-1, -1).append(",\"players\":").append(board.getPlayers().size()).append(",\"hexes\":[");
+			for (int h = 0; h < board.getHexes().size(); h++) {
+				Hex hex = board.getHexes().get(h);
+				if (h > 0) sb.append(',');
+				sb.append("{\"terrain\":\"").append(hex.getTerrain()).append("\",\"token\":").append(hex.getNumberToken()).append('}');
+			}
+			publish("game", sb.append("]}").toString());
+		}
+
+		@Override
+		public void onSetupPlacement(int seat, int node, int edge) {
+			if (clients.isEmpty()) return;
+			publish("setup", event(0, seat).append(",\"node\":").append(node).append(",\"edge\":").append(edge).append('}').toString());
+		}
+
+		@Override
+		public void onRoll(int round, int seat, int roll) {
+			if (clients.isEmpty()) return;
+			publish("roll", event(round, seat).append(",\"roll\":").append(roll).append('}').toString());
+		}
+
+		@Override
+		public void onRobber(int round, int seat, int hex, int victim) {
+			if (clients.isEmpty()) return;
+			publish("robber", event(round, seat).append(",\"hex\":").append(hex).append(",\"victim\":").append(victim).append('}').toString());
+		}
+
+		@Override
+		public void onAction(int round, int seat, Action action, boolean succeeded, boolean overHandLimit) {
+			if (clients.isEmpty()) return;
+			// describe() is plain text built from ids and enum names, so needs no escaping
+			publish("action", event(round, seat).append(",\"action\":\"").append(action.describe())
+					.append("\",\"succeeded\":").append(succeeded).append('}').toString());
+		}
+
+		@Override
+		public void onRoundEnd(int round, List<Agent> agents) {
+			if (clients.isEmpty()) return;
+			StringBuilder sb = event(round, -1).append(",\"vp\":[");
+			for (int s = 0; s < agents.size(); s++) sb.append((s > 0) ? "," : "").append(agents.get(s).getVictoryPoints());
+			publishScore(game, sb.append("]}").toString());
+		}
+
+		@Override
+		public void onGameEnd(int rounds, Agent winner) {
+			if (clients.isEmpty()) return;
+			publishEnd(game, event(rounds, -1).append(",\"winner\":").append((winner != null) ? winner.getSeat() : -1).append('}').toString());
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package catan;
+
+public class TradeAction extends Action {
+	private ResourceType give;
+	private ResourceType get;
+
+	public TradeAction(ResourceType give, ResourceType get) {
+		this.give = give;
+		this.get = get;
+	}
+
+	public boolean execute(Board b, Agent a) {
+		return a.trade(give, get);
+	}
+
+	@Override
+	public boolean isLegal(Board b, Agent a, MoveValidator rules) {
+		return rules.canTrade(a, give, get);
+	}
+
+	public String describe() {
+		return "Traded " + give + " for " + get;
+	}
+}
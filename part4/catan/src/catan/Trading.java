@@ -0,0 +1,51 @@
+package catan;
+
+/**
+ * Bank and harbour trade arithmetic on per-resource count vectors (indexed by
+ * ResourceType.ordinal()).
+ */
+public final class Trading {
+	public static final int BANK_RATE = 4;
+
+	private Trading() {
+	}
+
+	/**
+	 * Minimum number of trades that turns hand into one covering cost at the
+	 * given per-resource rates, or -1 if no sequence of trades can. Each trade
+	 * yields one missing card, and surplus cards of a resource can fund
+	 * floor(surplus / rate) trades independently of the others, so the answer
+	 * is the total shortfall whenever the surplus covers it.
+	 */
+	public static int tradesNeeded(int[] hand, int[] rates, int[] cost) {
+		int missing = 0;
+		int available = 0;
+		for (int r = 0; r < cost.length; r++) {
+			int diff = hand[r] - cost[r];
+			if (diff < 0) missing -= diff;
+			else available += diff / rates[r];
+		}
+		return available >= missing ? missing : -1;
+	}
+
+	/**
+	 * First trade of a shortest sequence towards cost, as {give, get} resource
+	 * ordinals, or null if cost is already covered or out of reach. Gives away
+	 * the resource with the most trades to spare.
+	 */
+	public static int[] nextTrade(int[] hand, int[] rates, int[] cost) {
+		if (tradesNeeded(hand, rates, cost) <= 0) return null;
+		int get = -1;
+		int give = -1;
+		int spare = 0;
+		for (int r = 0; r < cost.length; r++) {
+			int diff = hand[r] - cost[r];
+			if (diff < 0 && get < 0) get = r;
+			if (diff >= rates[r] && diff / rates[r] > spare) {
+				spare = diff / rates[r];
+				give = r;
+			}
+		}
+		return new int[] { give, get };
+	}
+}
@@ -0,0 +1,81 @@
+package catan;
+
+/**
+ * Fixed-size table from position hashes to search results, safe to share
+ * between threads without locks.
+ *
+ * Each entry is two longs: the packed result and the hash XOR the result. A
+ * probe accepts an entry only if the two still XOR to the probed hash, so an
+ * entry torn by a concurrent store reads as a miss instead of as someone
+ * else's result. Entries live in buckets of two: a store overwrites the
+ * entry for the same position, else an empty one, else the one from an
+ * older generation or, within a generation, the one searched less deeply.
+ */
+public final class TranspositionTable {
+	public static final int EXACT = 0;
+	public static final int LOWER_BOUND = 1;
+	public static final int UPPER_BOUND = 2;
+	/** Returned by probe when the position is not in the table. */
+	public static final long MISS = 0;
+
+	// packed result: value in bits 0-31, depth 32-47, bound 48-49, generation 50-57, and bit 63 always set
+	private static final long PRESENT = 1L << 63;
+
+	private final long[] checks;
+	private final long[] data;
+	private final int mask;
+	private int generation;
+
+	/** A table of 2^log2Entries entries, 16 bytes each. */
+	public TranspositionTable(int log2Entries) {
+		if (log2Entries < 1 || log2Entries > 30) throw new IllegalArgumentException("log2Entries out of range: " + log2Entries);
+		checks = new long[1 << log2Entries];
+		data = new long[1 << log2Entries];
+		mask = (1 << log2Entries) - 2;
+	}
+
+	/** Starts a new search; entries from earlier generations are replaced first. */
+	public void newGeneration() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	/** The packed entry for the position, or MISS. Read it with value, depth and bound. */
+	public long probe(long hash) {
+		int slot = (int) hash & mask;
+		for (int i = slot; i < slot + 2; i++) {
+			long d = data[i];
+			if (d != MISS && (checks[i] ^ d) == hash) return d;
+		}
+		return MISS;
+	}
+
+	public void store(long hash, int value, int depth, int bound) {
+		long d = PRESENT | ((long) generation << 50) | ((long) (bound & 3) << 48)
+				| ((long) (depth & 0xFFFF) << 32) | (value & 0xFFFFFFFFL);
+		int slot = (int) hash & mask;
+		int victim = slot;
+		for (int i = slot; i < slot + 2; i++) {
+			long old = data[i];
+			if (old == MISS || (checks[i] ^ old) == hash) {
+				victim = i;
+				break;
+			}
+			if (worth(old) < worth(data[victim])) victim = i;
+		}
+		data[victim] = d;
+		checks[victim] = hash ^ d;
+	}
+
+	// entries from the current generation outrank older ones, then deeper outranks shallower
+	private int worth(long entry) {
+		int age = (generation - generation(entry)) & 0xFF;
+		return (age == 0 ? 1 << 16 : 0) + depth(entry);
+	}
+
+	public static int value(long entry) { return (int) entry; }
+	public static int depth(long entry) { return (int) (entry >>> 32) & 0xFFFF; }
+	public static int bound(long entry) { return (int) (entry >>> 48) & 3; }
+	private static int generation(long entry) { return (int) (entry >>> 50) & 0xFF; }
+
+	public int capacity() { return data.length; }
+}
@@ -0,0 +1,33 @@
+package catan;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call to CatanSimulator.runTurn. Disabled unless a JFR recording turns
+ * on catan.Turn, e.g. with a .jfc settings file.
+ */
+@Name("catan.Turn")
+@Label("Turn")
+@Category("Catan")
+@Description("A single agent turn: roll, production and the agent's actions")
+@Enabled(false)
+@StackTrace(false)
+final class TurnEvent extends Event {
+	@Label("Agent")
+	int agentId;
+
+	@Label("Round")
+	int round;
+
+	@Label("Roll")
+	int roll;
+
+	@Label("Actions Executed")
+	int actions;
+}
@@ -12,6 +12,11 @@ public class UpgradeToCityAction extends Action {
 		return b.upgradeToCity(a, target);
 	}
 
+	@Override
+	public boolean isLegal(Board b, Agent a, MoveValidator rules) {
+		return rules.canUpgradeToCity(b, a, target);
+	}
+
 	public String describe() {
 		return "Upgraded to city at node " + target.getId();
 	}
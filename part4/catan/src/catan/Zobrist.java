@@ -0,0 +1,87 @@
+package catan;
+
+/**
+ * Random 64-bit keys for Zobrist hashing of a game position: buildings and
+ * their owners per node, road owners per edge, the robber's hex, card counts
+ * per seat and resource, and the seat to move. A position's hash is the XOR
+ * of the keys of everything in it, so each change updates it with one or two
+ * XORs; Board and GameState keep GameState.hash current that way.
+ *
+ * Card counts are bucketed (0 to HAND_BUCKETS - 1, the last bucket holding
+ * every larger count) so that hands differing only in a big surplus hash
+ * alike. Keys come from a fixed seed and are the same on every run.
+ */
+final class Zobrist {
+	static final int HAND_BUCKETS = 8;
+
+	private static final int RESOURCES = ResourceType.values().length;
+	// node codes: 1 + 2 * seat for a settlement, one more for a city
+	private static final int NODE_CODES = 1 + 2 * GameState.MAX_SEATS;
+
+	private static final long[] HAND_KEYS;
+	private static final long[] TURN_KEYS;
+
+	static {
+		long[] seed = { 0x2545F4914F6CDD1DL };
+		HAND_KEYS = new long[GameState.MAX_SEATS * RESOURCES * HAND_BUCKETS];
+		// an empty hand contributes nothing
+		for (int i = 0; i < HAND_KEYS.length; i++) HAND_KEYS[i] = (i % HAND_BUCKETS == 0) ? 0 : next(seed);
+		TURN_KEYS = new long[GameState.MAX_SEATS];
+		for (int i = 0; i < TURN_KEYS.length; i++) TURN_KEYS[i] = next(seed);
+	}
+
+	private final long[] nodeKeys;
+	private final long[] edgeKeys;
+	private final long[] robberKeys;
+
+	Zobrist(int nodeCount, int edgeCount, int hexCount) {
+		long[] seed = { 0x9E3779B97F4A7C15L };
+		nodeKeys = new long[nodeCount * NODE_CODES];
+		for (int i = 0; i < nodeKeys.length; i++) nodeKeys[i] = (i % NODE_CODES == 0) ? 0 : next(seed);
+		edgeKeys = new long[edgeCount * GameState.MAX_SEATS];
+		for (int i = 0; i < edgeKeys.length; i++) edgeKeys[i] = next(seed);
+		robberKeys = new long[hexCount];
+		for (int i = 0; i < robberKeys.length; i++) robberKeys[i] = next(seed);
+	}
+
+	// splitmix64
+	private static long next(long[] seed) {
+		long z = (seed[0] += 0x9E3779B97F4A7C15L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	static long hand(int seat, int resource, int count) {
+		return HAND_KEYS[(seat * RESOURCES + resource) * HAND_BUCKETS + Math.min(count, HAND_BUCKETS - 1)];
+	}
+
+	static long turn(int seat) {
+		return (seat == GameState.NO_SEAT) ? 0 : TURN_KEYS[seat];
+	}
+
+	long node(Node n) {
+		if (n.building == BuildingType.NONE) return 0;
+		int code = 1 + 2 * n.owner + (n.building == BuildingType.CITY ? 1 : 0);
+		return nodeKeys[n.getId() * NODE_CODES + code];
+	}
+
+	long edge(Edge e) {
+		return (e.owner == GameState.NO_SEAT) ? 0 : edgeKeys[e.getId() * GameState.MAX_SEATS + e.owner];
+	}
+
+	long robber(Hex h) {
+		return (h == null) ? 0 : robberKeys[h.getId()];
+	}
+
+	// the hash of the board and state from scratch; incremental updates must always agree with it
+	long hash(Board board, GameState state) {
+		long h = robber(board.getRobberHex()) ^ turn(state.turn);
+		for (int n = 0; n < board.getNodes().size(); n++) h ^= node(board.getNode(n));
+		for (int e = 0; e < board.getEdges().size(); e++) h ^= edge(board.getEdge(e));
+		for (int seat = 0; seat < state.seats; seat++) {
+			for (int r = 0; r < RESOURCES; r++) h ^= hand(seat, r, state.hands[seat][r]);
+		}
+		return h;
+	}
+}